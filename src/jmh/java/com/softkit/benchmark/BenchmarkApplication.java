@@ -0,0 +1,60 @@
+package com.softkit.benchmark;
+
+import com.google.common.collect.Lists;
+import com.softkit.StarterApplication;
+import com.softkit.model.Role;
+import com.softkit.model.User;
+import com.softkit.repository.UserRepository;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Starts the application on the in-memory H2 database of the tests, so the benchmarks measure the same beans
+ * and configuration the requests go through. SQL and request logging are turned off, they would dominate the numbers.
+ */
+final class BenchmarkApplication {
+
+    static final String USERNAME = "benchmark";
+    static final String PASSWORD = "HeisenbuG1!";
+
+    private BenchmarkApplication() {
+    }
+
+    //  passed as command line arguments, default properties would lose against application.yml
+    static ConfigurableApplicationContext start(String... properties) {
+        List<String> args = new ArrayList<>(Arrays.asList(
+                "--server.port=0",
+                "--spring.jpa.show-sql=false",
+                "--logging.level.root=WARN",
+                "--logging.level.com.softkit=WARN"));
+        for (String property : properties) {
+            args.add("--" + property);
+        }
+        return new SpringApplicationBuilder(StarterApplication.class).run(args.toArray(new String[0]));
+    }
+
+    static User saveUser(ConfigurableApplicationContext context) {
+        UserRepository userRepository = context.getBean(UserRepository.class);
+        User existing = userRepository.findByUsername(USERNAME);
+        if (existing != null) {
+            return existing;
+        }
+        return userRepository.save(User.builder()
+                .username(USERNAME)
+                .password(context.getBean(PasswordEncoder.class).encode(PASSWORD))
+                .email(USERNAME + "@softkit.com")
+                .firstName("soft")
+                .lastName("kit")
+                .birthday(Date.valueOf("2003-01-11"))
+                .roles(Lists.newArrayList(Role.ROLE_CLIENT))
+                .enabled(true)
+                .build());
+    }
+
+}
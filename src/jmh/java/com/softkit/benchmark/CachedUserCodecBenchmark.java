@@ -0,0 +1,87 @@
+package com.softkit.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.Lists;
+import com.softkit.configuration.CachedUserCodec;
+import com.softkit.dto.UserResponseDTO;
+import com.softkit.model.Role;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.sql.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A searchUser entry written and read by {@link CachedUserCodec}, by the JDK serialization RedisCacheManager
+ * uses by default and by the JSON serializer of Spring Data Redis. The size of each entry is printed on setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CachedUserCodecBenchmark {
+
+    private final RedisSerializer<UserResponseDTO> codec = new CachedUserCodec();
+    private final RedisSerializer<Object> jdk = new JdkSerializationRedisSerializer();
+    private final RedisSerializer<Object> json = new GenericJackson2JsonRedisSerializer(new ObjectMapper());
+
+    private UserResponseDTO user;
+    private byte[] codecBytes;
+    private byte[] jdkBytes;
+    private byte[] jsonBytes;
+
+    @Setup
+    public void setUp() {
+        user = new UserResponseDTO(123456, BenchmarkApplication.USERNAME, BenchmarkApplication.USERNAME + "@softkit.com",
+                "Walter", "White", Date.valueOf("1958-09-07"), Date.valueOf("2021-04-01"), "avatar.jpg",
+                Lists.newArrayList(Role.ROLE_ADMIN, Role.ROLE_CLIENT));
+        codecBytes = codec.serialize(user);
+        jdkBytes = jdk.serialize(user);
+        jsonBytes = json.serialize(user);
+        System.out.printf("Bytes per entry: codec %d, jdk %d, json %d%n", codecBytes.length, jdkBytes.length, jsonBytes.length);
+    }
+
+    @Benchmark
+    public byte[] codecSerialize() {
+        return codec.serialize(user);
+    }
+
+    @Benchmark
+    public Object codecDeserialize() {
+        return codec.deserialize(codecBytes);
+    }
+
+    @Benchmark
+    public byte[] jdkSerialize() {
+        return jdk.serialize(user);
+    }
+
+    @Benchmark
+    public Object jdkDeserialize() {
+        return jdk.deserialize(jdkBytes);
+    }
+
+    @Benchmark
+    public byte[] jsonSerialize() {
+        return json.serialize(user);
+    }
+
+    @Benchmark
+    public Object jsonDeserialize() {
+        return json.deserialize(jsonBytes);
+    }
+
+}
@@ -0,0 +1,15 @@
+package com.softkit.cluster;
+
+import java.util.function.Consumer;
+
+/**
+ * Broadcasts small text messages to every node of the application, this one included.
+ * Listeners must be idempotent, the same message may be delivered more than once.
+ */
+public interface ClusterEventBus {
+
+    void publish(String channel, String message);
+
+    void subscribe(String channel, Consumer<String> listener);
+
+}
@@ -0,0 +1,96 @@
+package com.softkit.configuration;
+
+import com.softkit.cluster.ClusterEventBus;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CachingConfigurerSupport;
+import org.springframework.cache.interceptor.CacheErrorHandler;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
+
+import java.time.Duration;
+import java.util.Set;
+
+@Slf4j
+@Configuration
+public class CacheConfig extends CachingConfigurerSupport {
+
+    //  app.cache.mode=redis shares entries between nodes through Redis behind the local tier,
+    //  app.cache.mode=local (default) keeps only the local tier, for a single node or when there is no Redis
+    @Bean
+    public CacheManager cacheManager(ObjectProvider<RedisConnectionFactory> redisConnectionFactory,
+                                     ClusterEventBus clusterEventBus,
+                                     @Value("${app.cache.mode:local}") String mode,
+                                     @Value("${app.cluster.bus:local}") String bus,
+                                     @Value("${app.cache.local.maximum-size:10000}") long localMaximumSize,
+                                     @Value("${app.cache.local.expire-after-write:60s}") Duration localExpireAfterWrite,
+                                     @Value("${app.cache.local.refresh-after-write:0s}") Duration localRefreshAfterWrite,
+                                     @Value("${app.cache.local-only:userDetails}") String[] localOnly,
+                                     @Value("${app.cache.redis.time-to-live:10m}") Duration redisTimeToLive) {
+        // with a shared tier but no shared bus the other nodes would keep serving their local copies after an eviction
+        if ("redis".equals(mode) && !"redis".equals(bus)) {
+            throw new IllegalStateException("app.cache.mode=redis needs app.cluster.bus=redis, so evictions reach every node");
+        }
+        RedisCacheConfiguration defaults = RedisCacheConfiguration.defaultCacheConfig().entryTtl(redisTimeToLive);
+        CacheManager remote = "redis".equals(mode)
+                ? RedisCacheManager.builder(redisConnectionFactory.getObject())
+                        .cacheDefaults(defaults)
+                        // search never returns null, so the codec has no null marker to store
+                        .withCacheConfiguration("searchUser", defaults
+                                .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(new CachedUserCodec()))
+                                .disableCachingNullValues())
+                        .build()
+                : null;
+        return new TwoLevelCacheManager(remote, clusterEventBus, localMaximumSize, localExpireAfterWrite,
+                localRefreshAfterWrite, Set.of(localOnly));
+    }
+
+    //  hit and miss counters of the caches as the application sees them, see MeteredCacheManager
+    @Bean
+    public static BeanPostProcessor cacheMetricsPostProcessor(ObjectProvider<MeterRegistry> meterRegistry) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                return bean instanceof CacheManager && !(bean instanceof MeteredCacheManager)
+                        ? new MeteredCacheManager((CacheManager) bean, beanName, meterRegistry.getObject())
+                        : bean;
+            }
+        };
+    }
+
+    //  evictions run after commit, an unreachable cache must not turn a committed write into an error response
+    @Override
+    public CacheErrorHandler errorHandler() {
+        return new CacheErrorHandler() {
+            @Override
+            public void handleCacheGetError(RuntimeException exception, Cache cache, Object key) {
+                log.warn("Cache {} get of {} failed, loading it instead", cache.getName(), key, exception);
+            }
+
+            @Override
+            public void handleCachePutError(RuntimeException exception, Cache cache, Object key, Object value) {
+                log.warn("Cache {} put of {} failed", cache.getName(), key, exception);
+            }
+
+            @Override
+            public void handleCacheEvictError(RuntimeException exception, Cache cache, Object key) {
+                log.warn("Cache {} evict of {} failed, the entry stays until it expires", cache.getName(), key, exception);
+            }
+
+            @Override
+            public void handleCacheClearError(RuntimeException exception, Cache cache) {
+                log.warn("Cache {} clear failed", cache.getName(), exception);
+            }
+        };
+    }
+
+}
@@ -0,0 +1,142 @@
+package com.softkit.configuration;
+
+import com.softkit.dto.CachedUser;
+import com.softkit.dto.UserResponseDTO;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Binary form of a {@link CachedUser} in Redis: a version byte, a byte flagging the fields that are present,
+ * then the fields in declaration order, numbers as varints and strings as length prefixed UTF-8.
+ * Entries written with another version read as a miss and are replaced by the next load,
+ * so changing the layout only needs a new version number.
+ */
+public class CachedUserCodec implements RedisSerializer<UserResponseDTO> {
+
+    static final byte VERSION = 1;
+
+    private static final int ID = 1;
+    private static final int USERNAME = 1 << 1;
+    private static final int EMAIL = 1 << 2;
+    private static final int FIRST_NAME = 1 << 3;
+    private static final int LAST_NAME = 1 << 4;
+    private static final int BIRTHDAY = 1 << 5;
+    private static final int REGISTRATION_DATE = 1 << 6;
+    private static final int PHOTOS = 1 << 7;
+
+    @Override
+    public byte[] serialize(UserResponseDTO user) {
+        return user != null ? encode(CachedUser.from(user)) : null;
+    }
+
+    @Override
+    public UserResponseDTO deserialize(byte[] bytes) {
+        CachedUser user = decode(bytes);
+        return user != null ? user.toResponse() : null;
+    }
+
+    public static byte[] encode(CachedUser user) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(96);
+        out.write(VERSION);
+        out.write(flag(user.getId(), ID) | flag(user.getUsername(), USERNAME) | flag(user.getEmail(), EMAIL)
+                | flag(user.getFirstName(), FIRST_NAME) | flag(user.getLastName(), LAST_NAME)
+                | flag(user.getBirthday(), BIRTHDAY) | flag(user.getRegistrationDate(), REGISTRATION_DATE)
+                | flag(user.getPhotos(), PHOTOS));
+        if (user.getId() != null) {
+            writeVarLong(out, user.getId());
+        }
+        writeString(out, user.getUsername());
+        writeString(out, user.getEmail());
+        writeString(out, user.getFirstName());
+        writeString(out, user.getLastName());
+        //  epoch days can be negative, zigzag keeps them short
+        if (user.getBirthday() != null) {
+            writeVarLong(out, zigzag(user.getBirthday()));
+        }
+        if (user.getRegistrationDate() != null) {
+            writeVarLong(out, zigzag(user.getRegistrationDate()));
+        }
+        writeString(out, user.getPhotos());
+        writeVarLong(out, user.getRoles());
+        return out.toByteArray();
+    }
+
+    public static CachedUser decode(byte[] bytes) {
+        if (bytes == null || bytes.length == 0 || bytes[0] != VERSION) {
+            return null;
+        }
+        try {
+            ByteBuffer in = ByteBuffer.wrap(bytes, 1, bytes.length - 1);
+            int flags = in.get() & 0xFF;
+            Integer id = (flags & ID) != 0 ? (int) readVarLong(in) : null;
+            String username = (flags & USERNAME) != 0 ? readString(in) : null;
+            String email = (flags & EMAIL) != 0 ? readString(in) : null;
+            String firstName = (flags & FIRST_NAME) != 0 ? readString(in) : null;
+            String lastName = (flags & LAST_NAME) != 0 ? readString(in) : null;
+            Long birthday = (flags & BIRTHDAY) != 0 ? unzigzag(readVarLong(in)) : null;
+            Long registrationDate = (flags & REGISTRATION_DATE) != 0 ? unzigzag(readVarLong(in)) : null;
+            String photos = (flags & PHOTOS) != 0 ? readString(in) : null;
+            int roles = (int) readVarLong(in);
+            return new CachedUser(id, username, email, firstName, lastName, birthday, registrationDate, photos, roles);
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new SerializationException("Corrupt cached user", e);
+        }
+    }
+
+    private static int flag(Object value, int flag) {
+        return value != null ? flag : 0;
+    }
+
+    private static void writeString(ByteArrayOutputStream out, String value) {
+        if (value == null) {
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = (int) readVarLong(in);
+        if (length < 0 || length > in.remaining()) {
+            throw new IllegalArgumentException("String length " + length);
+        }
+        String value = new String(in.array(), in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return value;
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarLong(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Varint too long");
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+}
@@ -0,0 +1,40 @@
+package com.softkit.configuration;
+
+import com.softkit.cluster.ClusterEventBus;
+import com.softkit.cluster.LocalClusterEventBus;
+import com.softkit.cluster.RedisClusterEventBus;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+/**
+ * app.cluster.bus=redis spreads invalidations (revoked tokens, evicted caches) to all nodes over Redis pub/sub,
+ * app.cluster.bus=local (default) keeps them in process.
+ */
+@Configuration
+public class ClusterConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "app.cluster.bus", havingValue = "redis")
+    public RedisMessageListenerContainer clusterListenerContainer(RedisConnectionFactory redisConnectionFactory) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(redisConnectionFactory);
+        return container;
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "app.cluster.bus", havingValue = "redis")
+    public ClusterEventBus redisClusterEventBus(StringRedisTemplate redisTemplate, RedisMessageListenerContainer clusterListenerContainer) {
+        return new RedisClusterEventBus(redisTemplate, clusterListenerContainer);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "app.cluster.bus", havingValue = "local", matchIfMissing = true)
+    public ClusterEventBus localClusterEventBus() {
+        return new LocalClusterEventBus();
+    }
+
+}
@@ -0,0 +1,69 @@
+package com.softkit.configuration;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Sums how long the current thread held pooled connections, from checkout to close. The pool's own usage timer
+ * has no idea which request held the connection, SqlStatementCountFilter records this sum per endpoint.
+ */
+public final class ConnectionHoldTimer {
+
+    private static final ThreadLocal<long[]> HELD_NANOS = ThreadLocal.withInitial(() -> new long[1]);
+
+    private ConnectionHoldTimer() {
+    }
+
+    public static void reset() {
+        HELD_NANOS.get()[0] = 0;
+    }
+
+    public static long heldNanos() {
+        return HELD_NANOS.get()[0];
+    }
+
+    //  wrap the pool itself, a lazy or routing proxy in front of it would also count connections never used
+    public static DataSource wrap(DataSource pool) {
+        return new TimingDataSource(pool);
+    }
+
+    private static Connection timed(Connection connection) {
+        long checkedOut = System.nanoTime();
+        boolean[] closed = new boolean[1];
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("close") && !closed[0]) {
+                        closed[0] = true;
+                        HELD_NANOS.get()[0] += System.nanoTime() - checkedOut;
+                    }
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getTargetException();
+                    }
+                });
+    }
+
+    private static final class TimingDataSource extends DelegatingDataSource {
+
+        private TimingDataSource(DataSource pool) {
+            super(pool);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return timed(super.getConnection());
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return timed(super.getConnection(username, password));
+        }
+    }
+
+}
@@ -0,0 +1,81 @@
+package com.softkit.configuration;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * app.datasource.replica.urls turns on read replicas: spring.datasource stays the primary, every url is a replica
+ * with the same credentials and driver unless app.datasource.replica.username/password are set.
+ * Without it the auto-configured single datasource is used.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.datasource.replica.urls")
+public class DataSourceRoutingConfig {
+
+    //  the routing datasource is kept out of the context, a second DataSource bean would confuse the auto-configuration
+    @Bean
+    @Primary
+    public DataSource dataSource(DataSourceProperties properties,
+                                 ReadYourWritesTracker readYourWritesTracker,
+                                 Environment environment,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${app.datasource.replica.urls}") List<String> replicaUrls,
+                                 @Value("${app.datasource.replica.username:${spring.datasource.username:}}") String username,
+                                 @Value("${app.datasource.replica.password:${spring.datasource.password:}}") String password) {
+        HikariDataSource primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        configurePool(primary, ReplicaRoutingDataSource.PRIMARY, environment, meterRegistry);
+        List<DataSource> replicas = new ArrayList<>();
+        for (int i = 0; i < replicaUrls.size(); i++) {
+            HikariDataSource replica = properties.initializeDataSourceBuilder()
+                    .type(HikariDataSource.class)
+                    .url(replicaUrls.get(i))
+                    .username(username)
+                    .password(password)
+                    .build();
+            configurePool(replica, ReplicaRoutingDataSource.replicaKey(i), environment, meterRegistry);
+            replicas.add(ConnectionHoldTimer.wrap(replica));
+        }
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(ConnectionHoldTimer.wrap(primary), replicas, readYourWritesTracker);
+        routing.afterPropertiesSet();
+        return new ClosingLazyConnectionDataSourceProxy(routing);
+    }
+
+    //  same spring.datasource.hikari settings as the single pool would get, the pool name tells the metrics apart
+    private static void configurePool(HikariDataSource pool, String name, Environment environment, MeterRegistry meterRegistry) {
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(pool));
+        pool.setPoolName(name);
+        pool.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+    }
+
+    //  closes the pools with the context
+    private static class ClosingLazyConnectionDataSourceProxy extends LazyConnectionDataSourceProxy implements Closeable {
+
+        ClosingLazyConnectionDataSourceProxy(ReplicaRoutingDataSource target) {
+            super(target);
+        }
+
+        @Override
+        public void close() throws IOException {
+            ((ReplicaRoutingDataSource) obtainTargetDataSource()).close();
+        }
+
+    }
+
+}
@@ -0,0 +1,154 @@
+package com.softkit.configuration;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Counts gets (by hit or miss), puts and evictions of every cache of the delegate as cache.gets, cache.puts
+ * and cache.evictions, tagged with the cache name. The hit ratio of a cache is hit / (hit + miss) of cache.gets.
+ * Works the same for the simple and the Redis cache managers, neither of which keeps statistics by default.
+ */
+public class MeteredCacheManager implements CacheManager {
+
+    private final CacheManager delegate;
+    private final String name;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, MeteredCache> caches = new ConcurrentHashMap<>();
+
+    public MeteredCacheManager(CacheManager delegate, String name, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.name = name;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Cache getCache(String cacheName) {
+        Cache cache = delegate.getCache(cacheName);
+        if (cache == null) {
+            return null;
+        }
+        return caches.computeIfAbsent(cacheName, key -> new MeteredCache(cache, counters(key)));
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return delegate.getCacheNames();
+    }
+
+    private Counter[] counters(String cacheName) {
+        return new Counter[]{
+                counter("cache.gets", cacheName, "result", "hit"),
+                counter("cache.gets", cacheName, "result", "miss"),
+                counter("cache.puts", cacheName),
+                counter("cache.evictions", cacheName)
+        };
+    }
+
+    private Counter counter(String meterName, String cacheName, String... tags) {
+        return Counter.builder(meterName)
+                .tags("cache", cacheName, "cacheManager", name)
+                .tags(tags)
+                .register(meterRegistry);
+    }
+
+    static class MeteredCache implements Cache {
+
+        private final Cache delegate;
+        private final Counter hits;
+        private final Counter misses;
+        private final Counter puts;
+        private final Counter evictions;
+
+        MeteredCache(Cache delegate, Counter[] counters) {
+            this.delegate = delegate;
+            this.hits = counters[0];
+            this.misses = counters[1];
+            this.puts = counters[2];
+            this.evictions = counters[3];
+        }
+
+        @Override
+        public String getName() {
+            return delegate.getName();
+        }
+
+        @Override
+        public Object getNativeCache() {
+            return delegate.getNativeCache();
+        }
+
+        @Override
+        public ValueWrapper get(Object key) {
+            return count(delegate.get(key));
+        }
+
+        @Override
+        public <T> T get(Object key, Class<T> type) {
+            return count(delegate.get(key, type));
+        }
+
+        @Override
+        public <T> T get(Object key, Callable<T> valueLoader) {
+            boolean[] loaded = new boolean[1];
+            T value = delegate.get(key, () -> {
+                loaded[0] = true;
+                return valueLoader.call();
+            });
+            (loaded[0] ? misses : hits).increment();
+            return value;
+        }
+
+        @Override
+        public void put(Object key, Object value) {
+            delegate.put(key, value);
+            puts.increment();
+        }
+
+        @Override
+        public ValueWrapper putIfAbsent(Object key, Object value) {
+            ValueWrapper existing = delegate.putIfAbsent(key, value);
+            if (existing == null) {
+                puts.increment();
+            }
+            return existing;
+        }
+
+        @Override
+        public void evict(Object key) {
+            delegate.evict(key);
+            evictions.increment();
+        }
+
+        @Override
+        public boolean evictIfPresent(Object key) {
+            boolean evicted = delegate.evictIfPresent(key);
+            if (evicted) {
+                evictions.increment();
+            }
+            return evicted;
+        }
+
+        @Override
+        public void clear() {
+            delegate.clear();
+        }
+
+        @Override
+        public boolean invalidate() {
+            return delegate.invalidate();
+        }
+
+        private <T> T count(T value) {
+            (value != null ? hits : misses).increment();
+            return value;
+        }
+    }
+
+}
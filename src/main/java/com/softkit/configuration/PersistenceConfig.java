@@ -0,0 +1,30 @@
+package com.softkit.configuration;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class PersistenceConfig {
+
+    //  the auto-configured pool, DataSourceRoutingConfig wraps its own pools
+    @Bean
+    public static BeanPostProcessor connectionHoldTimingPostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                return bean instanceof HikariDataSource ? ConnectionHoldTimer.wrap((HikariDataSource) bean) : bean;
+            }
+        };
+    }
+
+    //  statements are counted per thread, see SqlStatementCountFilter
+    @Bean
+    public HibernatePropertiesCustomizer sqlStatementCounterCustomizer() {
+        return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, new SqlStatementCounter());
+    }
+
+}
@@ -0,0 +1,70 @@
+package com.softkit.configuration;
+
+import com.softkit.cluster.ClusterEventBus;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Remembers the users that changed their own data a moment ago. Their read-only transactions stay on the primary
+ * for the window, so they see the change even while the replicas lag behind.
+ * Writes are broadcast, the next request of the user may reach another node.
+ */
+@Slf4j
+@Component
+public class ReadYourWritesTracker {
+
+    private static final String CHANNEL = "read-your-writes";
+
+    private final ClusterEventBus clusterEventBus;
+    private final long windowNanos;
+
+    private final ConcurrentMap<String, Long> pinnedUntil = new ConcurrentHashMap<>();
+
+    public ReadYourWritesTracker(ClusterEventBus clusterEventBus,
+                                 @Value("${app.datasource.replica.read-your-writes-window:5s}") Duration window) {
+        this.clusterEventBus = clusterEventBus;
+        this.windowNanos = window.toNanos();
+        clusterEventBus.subscribe(CHANNEL, this::pin);
+    }
+
+    //  call after the user's own update, reads of the user go to the primary until the window ends
+    public void recordWrite(String username) {
+        //  pinned here first, the broadcast may come back after the next request or not at all
+        pin(username);
+        try {
+            clusterEventBus.publish(CHANNEL, username);
+        } catch (RuntimeException e) {
+            log.warn("Broadcast of the write of {} failed, other nodes may serve it from a lagging replica", username, e);
+        }
+    }
+
+    public boolean isPinned(String username) {
+        if (username == null) {
+            return false;
+        }
+        Long until = pinnedUntil.get(username);
+        if (until == null) {
+            return false;
+        }
+        if (until - System.nanoTime() > 0) {
+            return true;
+        }
+        pinnedUntil.remove(username, until);
+        return false;
+    }
+
+    private void pin(String username) {
+        long now = System.nanoTime();
+        pinnedUntil.put(username, now + windowNanos);
+        // users that never read again would stay forever, drop the expired ones once in a while
+        if (pinnedUntil.size() > 10_000) {
+            pinnedUntil.values().removeIf(until -> until - now <= 0);
+        }
+    }
+
+}
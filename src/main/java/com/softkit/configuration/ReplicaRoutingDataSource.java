@@ -0,0 +1,76 @@
+package com.softkit.configuration;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends read-only transactions to the replicas, round robin, and everything else to the primary.
+ * Must be wrapped in a LazyConnectionDataSourceProxy: the transaction is marked read-only only after it begins,
+ * so the target can only be chosen when the first statement needs the connection.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements Closeable {
+
+    public static final String PRIMARY = "primary";
+
+    private final List<DataSource> targets = new ArrayList<>();
+    private final int replicaCount;
+    private final ReadYourWritesTracker readYourWritesTracker;
+    private final AtomicInteger next = new AtomicInteger();
+
+    public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas, ReadYourWritesTracker readYourWritesTracker) {
+        this.replicaCount = replicas.size();
+        this.readYourWritesTracker = readYourWritesTracker;
+        Map<Object, Object> lookup = new HashMap<>();
+        lookup.put(PRIMARY, primary);
+        for (int i = 0; i < replicas.size(); i++) {
+            lookup.put(replicaKey(i), replicas.get(i));
+        }
+        targets.add(primary);
+        targets.addAll(replicas);
+        setTargetDataSources(lookup);
+        setDefaultTargetDataSource(primary);
+    }
+
+    public static String replicaKey(int index) {
+        return "replica-" + index;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (replicaCount == 0
+                || !TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                || readYourWritesTracker.isPinned(currentUsername())) {
+            return PRIMARY;
+        }
+        return replicaKey(Math.floorMod(next.getAndIncrement(), replicaCount));
+    }
+
+    //  the pools are created by DataSourceRoutingConfig, not by Spring, so they are closed here
+    @Override
+    public void close() throws IOException {
+        for (DataSource target : targets) {
+            DataSource pool = target instanceof DelegatingDataSource ? ((DelegatingDataSource) target).getTargetDataSource() : target;
+            if (pool instanceof Closeable) {
+                ((Closeable) pool).close();
+            }
+        }
+    }
+
+    private static String currentUsername() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null ? authentication.getName() : null;
+    }
+
+}
@@ -0,0 +1,111 @@
+package com.softkit.configuration;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Refuses to start when an index the hot queries rely on is missing, instead of silently falling back to full scans.
+ * Runs once all beans, including the Flyway migration, are initialized and before the web server accepts requests.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "app.schema.verify-indexes", havingValue = "true", matchIfMissing = true)
+public class SchemaIndexVerifier implements SmartInitializingSingleton {
+
+    //  keep in sync with db/migration, an index matches when its leading columns are the expected ones
+    public static final List<ExpectedIndex> EXPECTED_INDEXES = Collections.unmodifiableList(Arrays.asList(
+            ExpectedIndex.of("users", "username"),
+            ExpectedIndex.of("users", "username_lower"),
+            ExpectedIndex.of("users", "email_lower"),
+            ExpectedIndex.of("users", "verification_code"),
+            ExpectedIndex.of("invite", "email_lower"),
+            ExpectedIndex.of("invite", "id_user", "date_sent_invite", "status")));
+
+    private final DataSource dataSource;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        List<String> missing = findMissing(EXPECTED_INDEXES);
+        if (!missing.isEmpty()) {
+            throw new IllegalStateException("Missing database indexes " + missing + ", check the db/migration scripts");
+        }
+        log.debug("All {} expected database indexes are present", EXPECTED_INDEXES.size());
+    }
+
+    public List<String> findMissing(List<ExpectedIndex> expectedIndexes) {
+        List<String> missing = new ArrayList<>();
+        try (Connection connection = dataSource.getConnection()) {
+            DatabaseMetaData metaData = connection.getMetaData();
+            for (ExpectedIndex expected : expectedIndexes) {
+                if (!exists(metaData, connection.getSchema(), expected)) {
+                    missing.add(expected.toString());
+                }
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not read the database indexes", e);
+        }
+        return missing;
+    }
+
+    private static boolean exists(DatabaseMetaData metaData, String schema, ExpectedIndex expected) throws SQLException {
+        // H2 reports unquoted identifiers in upper case, PostgreSQL in lower case
+        String table = metaData.storesUpperCaseIdentifiers()
+                ? expected.table.toUpperCase(Locale.ROOT)
+                : expected.table;
+
+        Map<String, TreeMap<Short, String>> indexes = new HashMap<>();
+        try (ResultSet rs = metaData.getIndexInfo(null, schema, table, false, true)) {
+            while (rs.next()) {
+                String indexName = rs.getString("INDEX_NAME");
+                String column = rs.getString("COLUMN_NAME");
+                if (indexName != null && column != null) {
+                    indexes.computeIfAbsent(indexName, name -> new TreeMap<>())
+                            .put(rs.getShort("ORDINAL_POSITION"), column.toLowerCase(Locale.ROOT));
+                }
+            }
+        }
+        return indexes.values().stream()
+                .map(columns -> new ArrayList<>(columns.values()))
+                .anyMatch(columns -> columns.size() >= expected.columns.size()
+                        && columns.subList(0, expected.columns.size()).equals(expected.columns));
+    }
+
+    public static final class ExpectedIndex {
+
+        private final String table;
+        private final List<String> columns;
+
+        private ExpectedIndex(String table, List<String> columns) {
+            this.table = table;
+            this.columns = columns;
+        }
+
+        public static ExpectedIndex of(String table, String... columns) {
+            return new ExpectedIndex(table, Collections.unmodifiableList(Arrays.asList(columns)));
+        }
+
+        @Override
+        public String toString() {
+            return table + columns;
+        }
+    }
+
+}
@@ -0,0 +1,117 @@
+package com.softkit.configuration;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records the number of SQL statements of every request in the {@code http.server.requests.sql.statements} summary
+ * and how long it held database connections in the {@code http.server.requests.connection.hold} timer,
+ * tagged like the request metrics. Runs before the security chain, so the queries of the JWT filter are counted too.
+ */
+@Slf4j
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class SqlStatementCountFilter extends OncePerRequestFilter {
+
+    public static final String HEADER = "X-Sql-Statement-Count";
+
+    private final MeterRegistry meterRegistry;
+
+    //  adds the count as a response header, meant for tests and local profiling only
+    @Value("${app.sql.statement-count-header:false}")
+    private boolean exposeHeader;
+
+    public SqlStatementCountFilter(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        SqlStatementCounter.reset();
+        ConnectionHoldTimer.reset();
+        // the body may be committed before the chain returns, so the header is also written just before that happens
+        CountingResponseWrapper countingResponse = exposeHeader ? new CountingResponseWrapper(response) : null;
+        try {
+            filterChain.doFilter(request, countingResponse != null ? countingResponse : response);
+        } finally {
+            if (countingResponse != null) {
+                countingResponse.writeCount();
+            }
+            int statements = SqlStatementCounter.count();
+            Object uri = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            Tags tags = Tags.of("method", request.getMethod(), "uri", uri != null ? uri.toString() : "UNKNOWN");
+            DistributionSummary.builder("http.server.requests.sql.statements")
+                    .tags(tags)
+                    .register(meterRegistry)
+                    .record(statements);
+            Timer.builder("http.server.requests.connection.hold")
+                    .tags(tags)
+                    .register(meterRegistry)
+                    .record(ConnectionHoldTimer.heldNanos(), TimeUnit.NANOSECONDS);
+            log.debug("{} {} ran {} SQL statements", request.getMethod(), request.getRequestURI(), statements);
+        }
+    }
+
+    private static final class CountingResponseWrapper extends HttpServletResponseWrapper {
+
+        private CountingResponseWrapper(HttpServletResponse response) {
+            super(response);
+        }
+
+        private void writeCount() {
+            if (!isCommitted()) {
+                setHeader(HEADER, String.valueOf(SqlStatementCounter.count()));
+            }
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            writeCount();
+            super.flushBuffer();
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            writeCount();
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            writeCount();
+            return super.getWriter();
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            writeCount();
+            super.sendError(sc, msg);
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            writeCount();
+            super.sendError(sc);
+        }
+    }
+
+}
@@ -0,0 +1,310 @@
+package com.softkit.configuration;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.softkit.cluster.ClusterEventBus;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.support.AbstractValueAdaptingCache;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A bounded in-process tier in front of an optional shared tier (Redis). Reads are served from the local tier
+ * and fall through to the shared one, evictions go to both and are broadcast on the cluster bus,
+ * so every node drops its local copy. Without a shared tier it is a local cache kept consistent by the bus.
+ * Local entries also expire after a while, which bounds the staleness when a broadcast is lost.
+ * <p>
+ * Loads through {@link Cache#get(Object, Callable)}, which is what {@code @Cacheable(sync = true)} calls,
+ * are coalesced: concurrent misses of a key run the loader once and the other callers wait for its result.
+ * With a refresh interval, a hit on an entry older than that reloads it in the background while the current
+ * value is still served, so hot keys are replaced before they expire.
+ */
+@Slf4j
+public class TwoLevelCacheManager implements CacheManager, DisposableBean {
+
+    static final String CHANNEL = "cache-invalidation";
+
+    //  separates the cache name from the key in a broadcast, a name alone clears that cache
+    private static final char SEPARATOR = '\n';
+
+    private final CacheManager remote;
+    private final ClusterEventBus clusterEventBus;
+    private final long maximumSize;
+    private final Duration expireAfterWrite;
+    private final Duration refreshAfterWrite;
+    private final Set<String> localOnly;
+    private final Executor refreshExecutor;
+    private final Map<String, TwoLevelCache> caches = new ConcurrentHashMap<>();
+
+    public TwoLevelCacheManager(CacheManager remote, ClusterEventBus clusterEventBus, long maximumSize,
+                                Duration expireAfterWrite, Duration refreshAfterWrite, Set<String> localOnly) {
+        this(remote, clusterEventBus, maximumSize, expireAfterWrite, refreshAfterWrite, localOnly, refreshPool());
+    }
+
+    public TwoLevelCacheManager(CacheManager remote, ClusterEventBus clusterEventBus, long maximumSize,
+                                Duration expireAfterWrite, Duration refreshAfterWrite, Set<String> localOnly,
+                                Executor refreshExecutor) {
+        this.remote = remote;
+        this.clusterEventBus = clusterEventBus;
+        this.maximumSize = maximumSize;
+        this.expireAfterWrite = expireAfterWrite;
+        this.refreshAfterWrite = refreshAfterWrite;
+        this.localOnly = localOnly;
+        this.refreshExecutor = refreshExecutor;
+        clusterEventBus.subscribe(CHANNEL, this::onInvalidation);
+    }
+
+    //  refreshes are optional work, when the queue is full the entry just expires as usual
+    private static ThreadPoolExecutor refreshPool() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        return new ThreadPoolExecutor(2, 2, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(1000),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "cache-refresh-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        return caches.computeIfAbsent(name, this::createCache);
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return Collections.unmodifiableSet(caches.keySet());
+    }
+
+    @Override
+    public void destroy() {
+        if (refreshExecutor instanceof ThreadPoolExecutor) {
+            ((ThreadPoolExecutor) refreshExecutor).shutdownNow();
+        }
+    }
+
+    private TwoLevelCache createCache(String name) {
+        com.github.benmanes.caffeine.cache.Cache<Object, Object> local = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .build();
+        Cache shared = remote != null && !localOnly.contains(name) ? remote.getCache(name) : null;
+        return new TwoLevelCache(name, local, shared);
+    }
+
+    private void onInvalidation(String message) {
+        int separator = message.indexOf(SEPARATOR);
+        TwoLevelCache cache = caches.get(separator < 0 ? message : message.substring(0, separator));
+        if (cache == null) {
+            return;
+        }
+        if (separator < 0) {
+            cache.invalidateLocal();
+        } else {
+            cache.invalidateLocal(message.substring(separator + 1));
+        }
+    }
+
+    private void broadcast(String name, Object key) {
+        clusterEventBus.publish(CHANNEL, key instanceof String ? name + SEPARATOR + key : name);
+    }
+
+    class TwoLevelCache extends AbstractValueAdaptingCache {
+
+        private final String name;
+        private final com.github.benmanes.caffeine.cache.Cache<Object, Object> local;
+        private final Cache shared;
+        //  loads and refreshes running per key, an eviction removes the entry so its result is not stored
+        private final Map<Object, CompletableFuture<Object>> loads = new ConcurrentHashMap<>();
+
+        TwoLevelCache(String name, com.github.benmanes.caffeine.cache.Cache<Object, Object> local, Cache shared) {
+            super(true);
+            this.name = name;
+            this.local = local;
+            this.shared = shared;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public Object getNativeCache() {
+            return local;
+        }
+
+        @Override
+        protected Object lookup(Object key) {
+            Object value = local.getIfPresent(key);
+            if (value != null || shared == null) {
+                return value;
+            }
+            ValueWrapper wrapper;
+            try {
+                wrapper = shared.get(key);
+            } catch (RuntimeException e) {
+                // the sync path of @Cacheable bypasses the CacheErrorHandler, an unreachable Redis is a miss
+                log.warn("Cache {} get of {} from the shared tier failed", name, key, e);
+                return null;
+            }
+            if (wrapper == null) {
+                return null;
+            }
+            value = toStoreValue(wrapper.get());
+            local.put(key, value);
+            return value;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> T get(Object key, Callable<T> valueLoader) {
+            Object value = lookup(key);
+            if (value != null) {
+                refreshIfDue(key, valueLoader, value);
+                return (T) fromStoreValue(value);
+            }
+            CompletableFuture<Object> load = new CompletableFuture<>();
+            CompletableFuture<Object> running = loads.putIfAbsent(key, load);
+            if (running != null) {
+                return (T) fromStoreValue(await(key, valueLoader, running));
+            }
+            // a load may have finished between the miss and registering this one
+            value = lookup(key);
+            if (value != null) {
+                loads.remove(key, load);
+                load.complete(value);
+                return (T) fromStoreValue(value);
+            }
+            try {
+                return (T) fromStoreValue(load(key, valueLoader, load));
+            } catch (Exception e) {
+                throw new ValueRetrievalException(key, valueLoader, e);
+            }
+        }
+
+        private Object load(Object key, Callable<?> valueLoader, CompletableFuture<Object> load) throws Exception {
+            try {
+                Object value = toStoreValue(valueLoader.call());
+                if (loads.remove(key, load)) {
+                    store(key, value);
+                }
+                load.complete(value);
+                return value;
+            } catch (Exception | Error e) {
+                loads.remove(key, load);
+                load.completeExceptionally(e);
+                throw e;
+            }
+        }
+
+        private Object await(Object key, Callable<?> valueLoader, CompletableFuture<Object> running) {
+            try {
+                return running.join();
+            } catch (CompletionException e) {
+                throw new ValueRetrievalException(key, valueLoader, e.getCause());
+            }
+        }
+
+        private void refreshIfDue(Object key, Callable<?> valueLoader, Object current) {
+            if (refreshAfterWrite.isZero() || loads.containsKey(key)) {
+                return;
+            }
+            OptionalLong age = local.policy().expireAfterWrite()
+                    .map(expiration -> expiration.ageOf(key, TimeUnit.NANOSECONDS))
+                    .orElse(OptionalLong.empty());
+            if (age.isEmpty() || age.getAsLong() < refreshAfterWrite.toNanos()) {
+                return;
+            }
+            CompletableFuture<Object> refresh = new CompletableFuture<>();
+            if (loads.putIfAbsent(key, refresh) != null) {
+                return;
+            }
+            try {
+                refreshExecutor.execute(() -> {
+                    try {
+                        load(key, valueLoader, refresh);
+                    } catch (Exception e) {
+                        log.warn("Cache {} refresh of {} failed, the current entry stays until it expires", name, key, e);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // a miss that joined meanwhile gets the value this caller got
+                loads.remove(key, refresh);
+                refresh.complete(current);
+            }
+        }
+
+        @Override
+        public void put(Object key, Object value) {
+            store(key, toStoreValue(value));
+        }
+
+        private void store(Object key, Object storeValue) {
+            if (shared != null) {
+                try {
+                    shared.put(key, fromStoreValue(storeValue));
+                } catch (RuntimeException e) {
+                    log.warn("Cache {} put of {} to the shared tier failed", name, key, e);
+                }
+            }
+            local.put(key, storeValue);
+        }
+
+        //  the shared tier goes first so a concurrent miss cannot copy the old value back into a local tier,
+        //  its failure must not keep this node and the others from dropping their copies
+        @Override
+        public void evict(Object key) {
+            if (shared != null) {
+                try {
+                    shared.evict(key);
+                } catch (RuntimeException e) {
+                    log.warn("Cache {} evict of {} from the shared tier failed", name, key, e);
+                }
+            }
+            invalidateLocal(key);
+            broadcast(name, key);
+        }
+
+        @Override
+        public void clear() {
+            if (shared != null) {
+                try {
+                    shared.clear();
+                } catch (RuntimeException e) {
+                    log.warn("Cache {} clear of the shared tier failed", name, e);
+                }
+            }
+            invalidateLocal();
+            broadcast(name, null);
+        }
+
+        private void invalidateLocal(Object key) {
+            loads.remove(key);
+            local.invalidate(key);
+        }
+
+        private void invalidateLocal() {
+            loads.clear();
+            local.invalidateAll();
+        }
+    }
+
+}
@@ -1,14 +1,19 @@
 package com.softkit.controller;
 
+import com.softkit.dto.BulkResultDTO;
 import com.softkit.dto.UserDataDTO;
+import com.softkit.dto.UserPageDTO;
 import com.softkit.dto.UserResponseDTO;
 import com.softkit.mapper.UserMapper;
 import com.softkit.model.Role;
+import com.softkit.security.LoginThrottle;
+import com.softkit.service.UserBulkService;
 import com.softkit.service.UserService;
 import io.swagger.annotations.*;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.io.InputStreamResource;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -23,7 +28,10 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.time.LocalDate;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 
 @CrossOrigin
 @RestController
@@ -35,15 +43,20 @@ public class UserController {
     @Autowired
     private final UserService userService;
     private final UserMapper userMapper;
+    private final LoginThrottle loginThrottle;
+    private final UserBulkService userBulkService;
 
     @PostMapping("/signin")
     @ApiOperation(value = "${UserController.signin}")
     @ApiResponses(value = {
             @ApiResponse(code = 400, message = "Something went wrong"),
-            @ApiResponse(code = 422, message = "Invalid username/password supplied")})
+            @ApiResponse(code = 422, message = "Invalid username/password supplied"),
+            @ApiResponse(code = 429, message = "Too many attempts, try again later")})
     public String login(
             @ApiParam("usernameOrEmail") @RequestParam String usernameOrEmail,
-            @ApiParam("password") @RequestParam String password) {
+            @ApiParam("password") @RequestParam String password,
+            HttpServletRequest request) {
+        loginThrottle.acquireClient(request);
         return userService.signin(usernameOrEmail, password);
     }
 
@@ -53,8 +66,11 @@ public class UserController {
     @ApiResponses(value = {
             @ApiResponse(code = 400, message = "Something went wrong"),
             @ApiResponse(code = 403, message = "Access denied"),
-            @ApiResponse(code = 422, message = "Username is already in use")})
-    public ResponseEntity<String> signup(@ApiParam("Signup User") @Valid @RequestBody UserDataDTO user) {
+            @ApiResponse(code = 422, message = "Username is already in use"),
+            @ApiResponse(code = 429, message = "Too many attempts, try again later")})
+    public ResponseEntity<String> signup(@ApiParam("Signup User") @Valid @RequestBody UserDataDTO user,
+                                         HttpServletRequest request) {
+        loginThrottle.acquire(request, user.getUsername());
         userService.signup(userMapper.mapUserDataToUser(user));
         return ResponseEntity.ok("An email confirmation link has been sent to you.");
     }
@@ -79,7 +95,7 @@ public class UserController {
             @ApiResponse(code = 403, message = "Access denied"),
             @ApiResponse(code = 500, message = "Expired or invalid JWT token")})
     public UserResponseDTO whoami(HttpServletRequest request) {
-        return userMapper.mapUserToResponse(userService.whoami(request));
+        return userService.whoami(request);
     }
 
     @DeleteMapping(value = "/delete")
@@ -105,7 +121,25 @@ public class UserController {
             @ApiResponse(code = 500, message = "Expired or invalid JWT token")})
     public UserResponseDTO searchByUsername(
             @ApiParam("username") @RequestParam String username){
-        return userMapper.mapUserToResponse(userService.search(username));
+        return userService.search(username);
+    }
+
+    @GetMapping
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @ApiOperation(value = "${UserController.list}", response = UserPageDTO.class, authorizations = {@Authorization(value = "apiKey")})
+    @ApiResponses(value = {
+            @ApiResponse(code = 400, message = "Something went wrong"),
+            @ApiResponse(code = 403, message = "Access denied"),
+            @ApiResponse(code = 422, message = "Page size out of range"),
+            @ApiResponse(code = 500, message = "Expired or invalid JWT token")})
+    public UserPageDTO listUsers(
+            @ApiParam("Id of the last user of the previous page") @RequestParam(required = false) Integer after,
+            @ApiParam("size") @RequestParam(defaultValue = "50") int size,
+            @ApiParam("role") @RequestParam(required = false) Role role,
+            @ApiParam("enabled") @RequestParam(required = false) Boolean enabled,
+            @ApiParam("registeredFrom") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate registeredFrom,
+            @ApiParam("registeredTo") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate registeredTo) {
+        return userService.listUsers(after, size, role, enabled, registeredFrom, registeredTo);
     }
 
     @PostMapping(value = "/refresh")
@@ -120,6 +154,81 @@ public class UserController {
     }
 
 
+    @PostMapping(value = "/logout")
+    @PreAuthorize("hasRole('ROLE_ADMIN') or hasRole('ROLE_CLIENT')")
+    @ApiOperation(value = "${UserController.logout}",authorizations = {@Authorization(value = "apiKey")})
+    @ApiResponses(value = {
+            @ApiResponse(code = 400, message = "Something went wrong"),
+            @ApiResponse(code = 403, message = "Access denied"),
+            @ApiResponse(code = 500, message = "Expired or invalid JWT token")})
+    public ResponseEntity<String> logout(HttpServletRequest request){
+        userService.logout(request);
+        return ResponseEntity.ok("Success");
+    }
+
+    @PostMapping(value = "/admin/revoke")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @ApiOperation(value = "${UserController.revoke}",authorizations = {@Authorization(value = "apiKey")})
+    @ApiResponses(value = {
+            @ApiResponse(code = 400, message = "Something went wrong"),
+            @ApiResponse(code = 403, message = "Access denied"),
+            @ApiResponse(code = 422, message = "No such username"),
+            @ApiResponse(code = 500, message = "Expired or invalid JWT token")})
+    public ResponseEntity<String> revokeTokens(@ApiParam("username") @RequestParam String username){
+        userService.revokeTokens(username);
+        return ResponseEntity.ok("Success");
+    }
+
+    @PostMapping(value = "/admin/bulk/delete")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @ApiOperation(value = "${UserController.bulkDelete}", authorizations = {@Authorization(value = "apiKey")})
+    @ApiResponses(value = {
+            @ApiResponse(code = 400, message = "Something went wrong"),
+            @ApiResponse(code = 403, message = "Access denied"),
+            @ApiResponse(code = 422, message = "Too many users per request"),
+            @ApiResponse(code = 500, message = "Expired or invalid JWT token")})
+    public List<BulkResultDTO> bulkDelete(@ApiParam("usernames") @RequestBody List<String> usernames) {
+        return userBulkService.delete(usernames);
+    }
+
+    @PostMapping(value = "/admin/bulk/rename")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @ApiOperation(value = "${UserController.bulkRename}", authorizations = {@Authorization(value = "apiKey")})
+    @ApiResponses(value = {
+            @ApiResponse(code = 400, message = "Something went wrong"),
+            @ApiResponse(code = 403, message = "Access denied"),
+            @ApiResponse(code = 422, message = "Too many users per request"),
+            @ApiResponse(code = 500, message = "Expired or invalid JWT token")})
+    public List<BulkResultDTO> bulkRename(@ApiParam("Current username to new username") @RequestBody Map<String, String> renames) {
+        return userBulkService.rename(renames);
+    }
+
+    @PostMapping(value = "/admin/bulk/enabled")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @ApiOperation(value = "${UserController.bulkEnabled}", authorizations = {@Authorization(value = "apiKey")})
+    @ApiResponses(value = {
+            @ApiResponse(code = 400, message = "Something went wrong"),
+            @ApiResponse(code = 403, message = "Access denied"),
+            @ApiResponse(code = 422, message = "Too many users per request"),
+            @ApiResponse(code = 500, message = "Expired or invalid JWT token")})
+    public List<BulkResultDTO> bulkEnabled(@ApiParam("enabled") @RequestParam boolean enabled,
+                                           @ApiParam("usernames") @RequestBody List<String> usernames) {
+        return userBulkService.setEnabled(usernames, enabled);
+    }
+
+    @PostMapping(value = "/admin/bulk/roles")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @ApiOperation(value = "${UserController.bulkRoles}", authorizations = {@Authorization(value = "apiKey")})
+    @ApiResponses(value = {
+            @ApiResponse(code = 400, message = "Something went wrong"),
+            @ApiResponse(code = 403, message = "Access denied"),
+            @ApiResponse(code = 422, message = "Too many users per request"),
+            @ApiResponse(code = 500, message = "Expired or invalid JWT token")})
+    public List<BulkResultDTO> bulkRoles(@ApiParam("roles") @RequestParam List<Role> roles,
+                                         @ApiParam("usernames") @RequestBody List<String> usernames) {
+        return userBulkService.setRoles(usernames, roles);
+    }
+
     @PostMapping(value = "/images")
     @PreAuthorize("hasRole('ROLE_ADMIN') or hasRole('ROLE_CLIENT')")
     @ApiOperation(value = "${UserController.images}",response = UserResponseDTO.class,authorizations = {@Authorization(value = "apiKey")})
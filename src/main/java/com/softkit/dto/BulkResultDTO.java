@@ -0,0 +1,23 @@
+package com.softkit.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkResultDTO {
+
+    private String username;
+    private Outcome outcome;
+
+    public enum Outcome {
+        DONE,
+        NOT_FOUND,
+        //  rename target already taken, by another user or by an earlier item of the same request
+        CONFLICT,
+        INVALID
+    }
+
+}
@@ -0,0 +1,48 @@
+package com.softkit.dto;
+
+import com.softkit.model.RolesConverter;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.Date;
+
+/**
+ * What the shared cache keeps of a searched user: the fields of {@link UserResponseDTO}, dates as epoch days
+ * and the roles as the bitmask of {@link RolesConverter}. Immutable, see CachedUserCodec for the stored bytes.
+ */
+@Getter
+@RequiredArgsConstructor
+public class CachedUser {
+
+    private final Integer id;
+    private final String username;
+    private final String email;
+    private final String firstName;
+    private final String lastName;
+    private final Long birthday;
+    private final Long registrationDate;
+    private final String photos;
+    private final int roles;
+
+    public static CachedUser from(UserResponseDTO user) {
+        return new CachedUser(user.getId(), user.getUsername(), user.getEmail(), user.getFirstName(), user.getLastName(),
+                toEpochDay(user.getBirthday()), toEpochDay(user.getRegistrationDate()), user.getPhotos(),
+                RolesConverter.toMask(user.getRoles()));
+    }
+
+    public UserResponseDTO toResponse() {
+        return new UserResponseDTO(id, username, email, firstName, lastName, toDate(birthday), toDate(registrationDate),
+                photos, new RolesConverter().convertToEntityAttribute(roles));
+    }
+
+    //  both columns are DATE, Hibernate loads them as java.sql.Date, so that is what comes back
+    private static Long toEpochDay(Date date) {
+        return date != null ? new java.sql.Date(date.getTime()).toLocalDate().toEpochDay() : null;
+    }
+
+    private static Date toDate(Long epochDay) {
+        return epochDay != null ? java.sql.Date.valueOf(LocalDate.ofEpochDay(epochDay)) : null;
+    }
+
+}
@@ -6,6 +6,7 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 
@@ -18,4 +19,9 @@ public class InviteResponseDto {
     private String email;
     private Date dateSentInvite;
     private List<Status> status;
+
+    //  used by the projection query, the response keeps the status list it had as a collection mapping
+    public InviteResponseDto(Integer id, String email, Date dateSentInvite, Status status) {
+        this(id, email, dateSentInvite, status == null ? Collections.<Status>emptyList() : Collections.singletonList(status));
+    }
 }
\ No newline at end of file
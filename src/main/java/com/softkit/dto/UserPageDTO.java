@@ -0,0 +1,18 @@
+package com.softkit.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserPageDTO {
+
+    private List<UserResponseDTO> users;
+    // pass as "after" to get the next page, null on the last page
+    private Integer nextCursor;
+
+}
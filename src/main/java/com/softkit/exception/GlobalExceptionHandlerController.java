@@ -1,6 +1,7 @@
 package com.softkit.exception;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -18,6 +19,12 @@ public class GlobalExceptionHandlerController {
         res.sendError(ex.getHttpStatus().value(), ex.getMessage());
     }
 
+    @ExceptionHandler(TooManyRequestsException.class)
+    public void handleTooManyRequestsException(HttpServletResponse res, TooManyRequestsException ex) throws IOException {
+        res.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()));
+        res.sendError(ex.getHttpStatus().value(), ex.getMessage());
+    }
+
     @ExceptionHandler(AccessDeniedException.class)
     public void handleAccessDeniedException(HttpServletResponse res) throws IOException {
         res.sendError(HttpStatus.FORBIDDEN.value(), "Access denied");
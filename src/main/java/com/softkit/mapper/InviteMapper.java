@@ -2,9 +2,13 @@ package com.softkit.mapper;
 
 import com.softkit.dto.InviteResponseDto;
 import com.softkit.model.Invite;
+import com.softkit.model.Status;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 
+import java.util.Collections;
+import java.util.List;
+
 @Mapper(componentModel = "spring")
 public interface InviteMapper {
 
@@ -14,4 +18,9 @@ public interface InviteMapper {
     @Mapping(target ="status",source = "status" )
     InviteResponseDto inviteToInviteResponseDto(Invite e);
 
+    //  the response keeps the list it had when invites stored a status collection
+    default List<Status> statusToList(Status status) {
+        return status == null ? Collections.emptyList() : Collections.singletonList(status);
+    }
+
 }
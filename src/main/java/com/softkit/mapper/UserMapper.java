@@ -16,6 +16,9 @@ public interface UserMapper {
     @Mapping(target ="lastName",source = "lastName" )
     @Mapping(target ="birthday",source = "birthday" )
     @Mapping(target ="roles",source = "roles" )
+    @Mapping(target ="usernameLower", ignore = true) // derived from username when the entity is persisted
+    @Mapping(target ="emailLower", ignore = true)
+    @Mapping(target ="tokenEpoch", ignore = true) // a new user starts at epoch 0
     User mapUserDataToUser(UserDataDTO e);
 
     UserResponseDTO mapUserToResponse(User e);
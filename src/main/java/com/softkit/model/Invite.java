@@ -8,7 +8,6 @@ import lombok.NoArgsConstructor;
 import javax.persistence.*;
 import java.io.Serializable;
 import java.util.Date;
-import java.util.List;
 
 @Entity(name = "Invite")
 @Data
@@ -17,12 +16,17 @@ import java.util.List;
 @AllArgsConstructor
 public class Invite implements Serializable {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // pooled-lo sequence instead of identity, so inserts can be JDBC batched (see V5__use_pooled_id_sequences.sql)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "invite_seq")
+    @SequenceGenerator(name = "invite_seq", sequenceName = "invite_seq", allocationSize = 50)
     private Integer id;
 
     @Column(unique = true, nullable = false)
     private String email;
 
+    @Column(name = "email_lower", unique = true, nullable = false)
+    private String emailLower;
+
     @Column(nullable = false)
     private Integer idUser;
 
@@ -30,7 +34,15 @@ public class Invite implements Serializable {
     @Column(nullable = true)
     private Date dateSentInvite;
 
-    @ElementCollection(fetch = FetchType.EAGER)
-    private List<Status> status;
+    // an invite has exactly one status, stored by ordinal so "status desc" keeps listing CLOSED before PENDING
+    @Enumerated(EnumType.ORDINAL)
+    @Column(nullable = false)
+    private Status status;
+
+    @PrePersist
+    @PreUpdate
+    protected void normalize() {
+        emailLower = User.toLowerCase(email);
+    }
 
 }
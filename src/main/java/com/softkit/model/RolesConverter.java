@@ -0,0 +1,50 @@
+package com.softkit.model;
+
+import javax.persistence.AttributeConverter;
+import javax.persistence.Converter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stores the roles of a user as one integer, bit {@code 1 << ordinal} per role, so loading a user needs no
+ * second table. New roles must be appended to {@link Role}, reordering it would change the meaning of stored values.
+ */
+@Converter
+public class RolesConverter implements AttributeConverter<List<Role>, Integer> {
+
+    private static final Role[] ROLES = Role.values();
+
+    @Override
+    public Integer convertToDatabaseColumn(List<Role> roles) {
+        return toMask(roles);
+    }
+
+    @Override
+    public List<Role> convertToEntityAttribute(Integer mask) {
+        List<Role> roles = new ArrayList<>(ROLES.length);
+        if (mask != null) {
+            for (Role role : ROLES) {
+                if ((mask & bit(role)) != 0) {
+                    roles.add(role);
+                }
+            }
+        }
+        return roles;
+    }
+
+    public static int toMask(Iterable<Role> roles) {
+        int mask = 0;
+        if (roles != null) {
+            for (Role role : roles) {
+                mask |= bit(role);
+            }
+        }
+        return mask;
+    }
+
+    //  the bit of the role in the stored mask, for queries that test a single role
+    public static int bit(Role role) {
+        return 1 << role.ordinal();
+    }
+
+}
@@ -10,6 +10,7 @@ import javax.validation.constraints.Size;
 import java.io.Serializable;
 import java.util.Date;
 import java.util.List;
+import java.util.Locale;
 
 @Entity(name = "Users")
 @Data
@@ -19,7 +20,9 @@ import java.util.List;
 public class User implements Serializable {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // pooled-lo sequence instead of identity, so inserts can be JDBC batched (see V5__use_pooled_id_sequences.sql)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_seq")
+    @SequenceGenerator(name = "users_seq", sequenceName = "users_seq", allocationSize = 50)
     private Integer id;
     
     @Size(min = 4, max = 255, message = "Minimum username length: 4 characters")
@@ -32,6 +35,13 @@ public class User implements Serializable {
     @Column(unique = true, nullable = false)
     private String email;
 
+    // lowercase copies of username and email, so case-insensitive lookups hit a unique index instead of lower(column)
+    @Column(name = "username_lower", unique = true, nullable = false)
+    private String usernameLower;
+
+    @Column(name = "email_lower", unique = true, nullable = false)
+    private String emailLower;
+
     @Column(name = "UpdateEmail",nullable = true)
     private String updateEmail;
 
@@ -52,7 +62,8 @@ public class User implements Serializable {
     @Column(nullable = true, length = 64)
     private String photos;
 
-    @ElementCollection(fetch = FetchType.EAGER)
+    @Convert(converter = RolesConverter.class)
+    @Column(name = "roles", nullable = false)
     private List<Role> roles;
 
     @Column(name = "verification_code",nullable = true)
@@ -61,4 +72,20 @@ public class User implements Serializable {
     @Column(name = "enabled",nullable = true)
     private boolean enabled;
 
+    // bumped whenever issued tokens must stop working (role change, forced logout)
+    @Column(name = "token_epoch", nullable = false)
+    private int tokenEpoch;
+
+    @PrePersist
+    @PreUpdate
+    protected void normalize() {
+        usernameLower = toLowerCase(username);
+        emailLower = toLowerCase(email);
+    }
+
+    //  the single normalization used for the *Lower columns and the values they are queried with
+    public static String toLowerCase(String value) {
+        return value == null ? null : value.toLowerCase(Locale.ROOT);
+    }
+
 }
@@ -0,0 +1,39 @@
+package com.softkit.repository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+/**
+ * Inserts many new entities with JDBC batching. The persistence context is flushed and cleared every
+ * batch, so memory and dirty checking stay flat however many rows are written.
+ */
+@Repository
+public class BatchWriter {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}")
+    private int batchSize;
+
+    //  the entities are detached afterwards, load them again to change them
+    @Transactional
+    public <T> int persistAll(Iterable<T> entities) {
+        int count = 0;
+        for (T entity : entities) {
+            entityManager.persist(entity);
+            if (++count % batchSize == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+        return count;
+    }
+
+}
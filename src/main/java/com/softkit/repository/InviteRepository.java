@@ -2,19 +2,28 @@ package com.softkit.repository;
 
 import com.softkit.dto.InviteResponseDto;
 import com.softkit.model.Invite;
-import com.softkit.model.User;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
+import com.softkit.model.Status;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface InviteRepository extends JpaRepository<Invite, Integer> {
 
-    boolean existsByEmail(String email);
+    @Transactional
+    @Modifying
+    @Query("update Invite i set i.status = :status where i.emailLower = :emailLower")
+    int updateStatusByEmailLower(@Param("emailLower") String emailLower, @Param("status") Status status);
 
-    Invite findByEmail(String email);
+    @Query("select i.emailLower from Invite i where i.emailLower in :emailLowers")
+    List<String> findEmailLowersIn(@Param("emailLowers") Collection<String> emailLowers);
 
-    Page<Invite> findByIdUserOrderByDateSentInviteDescStatusDesc(Integer id_user, Pageable pageable);
+    //  read-only response rows of the invites sent by the user, newest first
+    @Query("select new com.softkit.dto.InviteResponseDto(i.id, i.email, i.dateSentInvite, i.status) from Invite i, Users u " +
+            "where u.username = :username and i.idUser = u.id order by i.dateSentInvite desc, i.status desc")
+    List<InviteResponseDto> findResponsesByUsername(@Param("username") String username);
 }
@@ -1,18 +1,115 @@
 package com.softkit.repository;
 
+import com.softkit.dto.UserResponseDTO;
 import com.softkit.model.User;
-import org.springframework.cache.annotation.CacheEvict;
-import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
-public interface UserRepository extends JpaRepository<User, Integer> {
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface UserRepository extends JpaRepository<User, Integer>, UserRepositoryCustom {
     boolean existsByUsername(String username);
-    boolean existsByUsernameIgnoreCase(String username);
+    //  expect an already lowercased value, see User.toLowerCase
+    boolean existsByUsernameLower(String usernameLower);
     User findByUsername(String username);
-    boolean existsByEmailIgnoreCase(String email);
+    boolean existsByEmailLower(String emailLower);
     boolean existsByVerificationCode(String verificationCode);
-    User findByVerificationCode(String verificationCode);
     Long countByEnabledIsTrue();
-    User findByEmail(String usernameOrEmail);
     User save(User user);
+
+    //  single query lookup, use it instead of existsByUsername followed by findByUsername
+    Optional<User> findOneByUsername(String username);
+
+    //  response columns only, the password hash and codes never leave the database
+    @Query("select new com.softkit.dto.UserResponseDTO(u.id, u.username, u.email, u.firstName, u.lastName, " +
+            "u.birthday, u.registrationDate, u.photos, u.roles) from Users u where u.username = :username")
+    Optional<UserResponseDTO> findResponseByUsername(@Param("username") String username);
+
+    @Modifying
+    @Query("delete from Users u where u.username = :username")
+    int deleteByUsername(@Param("username") String username);
+
+    //  single statement writes, the row is not loaded first
+    @Transactional
+    @Modifying
+    @Query("update Users u set u.firstName = :firstName, u.lastName = :lastName where u.username = :username")
+    int updateNameByUsername(@Param("username") String username, @Param("firstName") String firstName,
+                             @Param("lastName") String lastName);
+
+    @Transactional
+    @Modifying
+    @Query("update Users u set u.updateEmail = :updateEmail where u.username = :username")
+    int updatePendingEmailByUsername(@Param("username") String username, @Param("updateEmail") String updateEmail);
+
+    @Query("select u.verificationCode from Users u where u.username = :username")
+    Optional<String> findVerificationCodeByUsername(@Param("username") String username);
+
+    @Query("select u.username from Users u where u.verificationCode = :code")
+    Optional<String> findUsernameByVerificationCode(@Param("code") String code);
+
+    //  an already enabled account matches no row, so verifying it again writes and locks nothing
+    @Transactional
+    @Modifying
+    @Query("update Users u set u.enabled = true where u.verificationCode = :code and (u.enabled = false or u.enabled is null)")
+    int enableByVerificationCode(@Param("code") String code);
+
+    //  User.normalize() does not run for a query, so email_lower is set here
+    @Transactional
+    @Modifying
+    @Query("update Users u set u.email = u.updateEmail, u.emailLower = lower(u.updateEmail), u.updateEmail = null " +
+            "where u.verificationCode = :code and u.updateEmail is not null")
+    int confirmPendingEmailByVerificationCode(@Param("code") String code);
+
+    //  bulk admin operations, callers keep each collection within the IN list limit of the database
+    @Query("select u.username from Users u where u.username in :usernames")
+    List<String> findUsernamesIn(@Param("usernames") Collection<String> usernames);
+
+    List<User> findAllByUsernameIn(Collection<String> usernames);
+
+    @Query("select u.emailLower from Users u where u.emailLower in :emailLowers")
+    List<String> findEmailLowersIn(@Param("emailLowers") Collection<String> emailLowers);
+
+    @Query("select u.usernameLower from Users u where u.usernameLower in :usernameLowers")
+    List<String> findUsernameLowersIn(@Param("usernameLowers") Collection<String> usernameLowers);
+
+    @Modifying
+    @Query("delete from Users u where u.username in :usernames")
+    int deleteByUsernameIn(@Param("usernames") Collection<String> usernames);
+
+    @Modifying
+    @Query("update Users u set u.enabled = true where u.username in :usernames")
+    int enableByUsernameIn(@Param("usernames") Collection<String> usernames);
+
+    //  also invalidates the tokens already issued, so a disabled account is locked out at once
+    @Modifying
+    @Query("update Users u set u.enabled = false, u.tokenEpoch = u.tokenEpoch + 1 where u.username in :usernames")
+    int disableByUsernameIn(@Param("usernames") Collection<String> usernames);
+
+    //  tokens carry the roles, they are invalidated so the next token has the new ones.
+    //  Native, as JPQL would expand a List parameter instead of passing it to RolesConverter
+    @Modifying
+    @Query(value = "update users set roles = :rolesMask, token_epoch = token_epoch + 1 where username in :usernames",
+            nativeQuery = true)
+    int updateRolesByUsernameIn(@Param("rolesMask") int rolesMask, @Param("usernames") Collection<String> usernames);
+
+    //  signin accepts either, so both are resolved in one query
+    @Query("select u from Users u where u.username = :login or u.emailLower = lower(:login)")
+    List<User> findAllByUsernameOrEmail(@Param("login") String login);
+
+    Optional<TokenStamp> findTokenStampByUsername(String username);
+
+    @Modifying
+    @Query("update Users u set u.tokenEpoch = u.tokenEpoch + 1 where u.username = :username")
+    int incrementTokenEpoch(@Param("username") String username);
+
+    // only the columns needed to check that a token still belongs to the current incarnation of the user
+    interface TokenStamp {
+        Integer getId();
+        int getTokenEpoch();
+    }
 }
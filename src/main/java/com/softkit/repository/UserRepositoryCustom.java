@@ -0,0 +1,18 @@
+package com.softkit.repository;
+
+import com.softkit.dto.UserResponseDTO;
+import com.softkit.model.Role;
+
+import java.util.Date;
+import java.util.List;
+
+public interface UserRepositoryCustom {
+
+    /**
+     * Keyset page of users ordered by id: the first {@code limit} users with an id greater than {@code afterId}
+     * (or from the start when null). Null filters are left out of the query, no count query is run.
+     */
+    List<UserResponseDTO> findPageAfter(Integer afterId, int limit, Role role, Boolean enabled,
+                                        Date registeredFrom, Date registeredTo);
+
+}
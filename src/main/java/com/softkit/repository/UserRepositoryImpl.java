@@ -0,0 +1,56 @@
+package com.softkit.repository;
+
+import com.softkit.dto.UserResponseDTO;
+import com.softkit.model.Role;
+import com.softkit.model.RolesConverter;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.TypedQuery;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class UserRepositoryImpl implements UserRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    //  only the filters that are set end up in the query, so each combination gets its own plan on the id index
+    @Override
+    public List<UserResponseDTO> findPageAfter(Integer afterId, int limit, Role role, Boolean enabled,
+                                               Date registeredFrom, Date registeredTo) {
+        StringBuilder jpql = new StringBuilder("select new com.softkit.dto.UserResponseDTO(u.id, u.username, u.email, " +
+                "u.firstName, u.lastName, u.birthday, u.registrationDate, u.photos, u.roles) from Users u where 1 = 1");
+        Map<String, Object> parameters = new LinkedHashMap<>();
+
+        if (afterId != null) {
+            jpql.append(" and u.id > :afterId");
+            parameters.put("afterId", afterId);
+        }
+        if (role != null) {
+            // roles are one bitmask column (see RolesConverter), JPQL has no bitwise and, so the bit is tested arithmetically.
+            // The bit is a literal, a parameter would be bound through the converter as a list of roles
+            jpql.append(" and mod(u.roles / ").append(RolesConverter.bit(role)).append(", 2) = 1");
+        }
+        if (enabled != null) {
+            jpql.append(" and u.enabled = :enabled");
+            parameters.put("enabled", enabled);
+        }
+        if (registeredFrom != null) {
+            jpql.append(" and u.registrationDate >= :registeredFrom");
+            parameters.put("registeredFrom", registeredFrom);
+        }
+        if (registeredTo != null) {
+            jpql.append(" and u.registrationDate <= :registeredTo");
+            parameters.put("registeredTo", registeredTo);
+        }
+        jpql.append(" order by u.id");
+
+        TypedQuery<UserResponseDTO> query = entityManager.createQuery(jpql.toString(), UserResponseDTO.class);
+        parameters.forEach(query::setParameter);
+        return query.setMaxResults(limit).getResultList();
+    }
+
+}
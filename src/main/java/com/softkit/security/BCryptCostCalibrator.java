@@ -0,0 +1,60 @@
+package com.softkit.security;
+
+import org.springframework.security.crypto.bcrypt.BCrypt;
+
+/**
+ * Picks the highest BCrypt cost whose hash time on this machine stays within the target latency.
+ * Each cost step doubles the work, so measuring stops at the first cost over the target.
+ * <p>
+ * Can also be run on its own to see the timings of the current hardware:
+ * {@code java -cp <classpath> com.softkit.security.BCryptCostCalibrator 250}
+ */
+public final class BCryptCostCalibrator {
+
+    public static final int MIN_STRENGTH = 10;
+    public static final int MAX_STRENGTH = 16;
+
+    private static final String SAMPLE_PASSWORD = "Calibration-Passw0rd!";
+
+    private BCryptCostCalibrator() {
+    }
+
+    public static int calibrate(long targetMillis) {
+        // the first hash pays for class loading and JIT, it would distort the lowest cost
+        measureMillis(4);
+
+        int strength = MIN_STRENGTH;
+        for (int candidate = MIN_STRENGTH; candidate <= MAX_STRENGTH; candidate++) {
+            if (measureMillis(candidate) > targetMillis) {
+                break;
+            }
+            strength = candidate;
+        }
+        return strength;
+    }
+
+    //  best of two runs, to keep a single GC pause or scheduler hiccup from lowering the cost
+    public static long measureMillis(int strength) {
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < 2; i++) {
+            String salt = BCrypt.gensalt(strength);
+            long start = System.nanoTime();
+            BCrypt.hashpw(SAMPLE_PASSWORD, salt);
+            best = Math.min(best, (System.nanoTime() - start) / 1_000_000);
+        }
+        return best;
+    }
+
+    public static void main(String[] args) {
+        long targetMillis = args.length > 0 ? Long.parseLong(args[0]) : 250;
+        for (int strength = MIN_STRENGTH; strength <= MAX_STRENGTH; strength++) {
+            long millis = measureMillis(strength);
+            System.out.println("cost " + strength + ": " + millis + " ms");
+            if (millis > targetMillis * 4) {
+                break;
+            }
+        }
+        System.out.println("chosen cost for " + targetMillis + " ms: " + calibrate(targetMillis));
+    }
+
+}
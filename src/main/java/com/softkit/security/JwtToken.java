@@ -0,0 +1,69 @@
+package com.softkit.security;
+
+import io.jsonwebtoken.Claims;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Verified token of the current request. {@link JwtTokenFilter} parses the bearer token once and keeps the result
+ * as a request attribute, services get it back through {@link JwtTokenProvider#resolveParsedToken}.
+ */
+public final class JwtToken {
+
+    public static final String REQUEST_ATTRIBUTE = JwtToken.class.getName();
+
+    private final Claims claims;
+    private final List<GrantedAuthority> authorities;
+
+    public JwtToken(Claims claims) {
+        this.claims = claims;
+        this.authorities = Collections.unmodifiableList(readAuthorities(claims));
+    }
+
+    public Claims getClaims() {
+        return claims;
+    }
+
+    public String getId() {
+        return claims.getId();
+    }
+
+    public String getSubject() {
+        return claims.getSubject();
+    }
+
+    public Integer getUserId() {
+        return claims.get("uid", Integer.class);
+    }
+
+    public Integer getEpoch() {
+        return claims.get("epoch", Integer.class);
+    }
+
+    public List<GrantedAuthority> getAuthorities() {
+        return authorities;
+    }
+
+    public Date getExpiration() {
+        return claims.getExpiration();
+    }
+
+    //  "auth" is serialized from SimpleGrantedAuthority, so it comes back as a list of {"authority": "..."} objects
+    private static List<GrantedAuthority> readAuthorities(Claims claims) {
+        List<?> auth = claims.get("auth", List.class);
+        if (auth == null) {
+            return Collections.emptyList();
+        }
+        return auth.stream()
+                .map(a -> a instanceof Map ? ((Map<?, ?>) a).get("authority") : a)
+                .map(a -> new SimpleGrantedAuthority(String.valueOf(a)))
+                .collect(Collectors.toList());
+    }
+
+}
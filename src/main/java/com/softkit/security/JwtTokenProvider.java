@@ -2,10 +2,12 @@ package com.softkit.security;
 
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import com.softkit.exception.CustomException;
-import com.softkit.model.Role;
+import com.softkit.model.User;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
@@ -16,10 +18,11 @@ import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.PostConstruct;
+import javax.crypto.spec.SecretKeySpec;
 import javax.servlet.http.HttpServletRequest;
-import java.util.Base64;
+import java.security.Key;
 import java.util.Date;
-import java.util.List;
+import java.util.UUID;
 import java.util.stream.Collectors;
 
 @Component
@@ -35,37 +38,120 @@ public class JwtTokenProvider {
     @Value("${security.jwt.token.expire-length:3600000}")
     private final long validityInMilliseconds = 3600000;  // 1h
 
+    /**
+     * When enabled the authentication is built from the signed claims only, instead of loading the user on every request.
+     * Deleted users and revoked tokens are rejected in both modes, see {@link TokenEpochService} and {@link TokenRevocationService}.
+     */
+    @Value("${security.jwt.token.claims-only:false}")
+    private boolean claimsOnly;
+
+    //  upper bound of verified tokens kept in memory, 0 disables the cache
+    @Value("${security.jwt.token.cache-size:10000}")
+    private int verifiedTokenCacheSize;
+
     @Autowired
     private ProjectUserDetailsService myUserDetails;
 
+    @Autowired
+    private TokenEpochService tokenEpochService;
+
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Key signingKey;
+
+    //  configured once and never modified afterwards, so it is safe to share between request threads
+    private JwtParser jwtParser;
+
+    private VerifiedTokenCache verifiedTokens;
+
     @PostConstruct
     protected void init() {
-        secretKey = Base64.getEncoder().encodeToString(secretKey.getBytes());
+        signingKey = new SecretKeySpec(secretKey.getBytes(), SignatureAlgorithm.HS256.getJcaName());
+        jwtParser = Jwts.parser().setSigningKey(signingKey);
+        if (verifiedTokenCacheSize > 0) {
+            verifiedTokens = new VerifiedTokenCache(verifiedTokenCacheSize);
+            verifiedTokens.bindTo(meterRegistry);
+        }
     }
 
-    public String createToken(String username, List<Role> roles) {
+    public String createToken(User user) {
 
-        Claims claims = Jwts.claims().setSubject(username);
-        claims.put("auth", roles.stream().map(s -> new SimpleGrantedAuthority(s.getAuthority())).collect(Collectors.toList()));
+        Claims claims = Jwts.claims().setSubject(user.getUsername());
+        claims.put("auth", user.getRoles().stream().map(s -> new SimpleGrantedAuthority(s.getAuthority())).collect(Collectors.toList()));
+        claims.put("uid", user.getId());
+        claims.put("epoch", user.getTokenEpoch());
 
         Date now = new Date();
         Date validity = new Date(now.getTime() + validityInMilliseconds);
 
         return Jwts.builder()
                 .setClaims(claims)
+                .setId(UUID.randomUUID().toString())
                 .setIssuedAt(now)
                 .setExpiration(validity)
-                .signWith(SignatureAlgorithm.HS256, secretKey)
+                .signWith(SignatureAlgorithm.HS256, signingKey)
                 .compact();
     }
 
+    public JwtToken parseToken(String token) {
+        if (verifiedTokens == null) {
+            return verify(token);
+        }
+        JwtToken cached = verifiedTokens.get(token);
+        if (cached != null) {
+            return cached;
+        }
+        JwtToken verified = verify(token);
+        verifiedTokens.put(token, verified);
+        return verified;
+    }
+
+    public VerifiedTokenCache getVerifiedTokenCache() {
+        return verifiedTokens;
+    }
+
+    private JwtToken verify(String token) {
+        try {
+            return new JwtToken(jwtParser.parseClaimsJws(token).getBody());
+        } catch (JwtException | IllegalArgumentException e) {
+            throw new CustomException("Expired or invalid JWT token", HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
     public Authentication getAuthentication(String token) {
-        UserDetails userDetails = myUserDetails.loadUserByUsername(getUsername(token));
+        return getAuthentication(parseToken(token));
+    }
+
+    public Authentication getAuthentication(JwtToken token) {
+        if (!isCurrent(token) || tokenRevocationService.isRevoked(token)) {
+            throw new CustomException("Expired or invalid JWT token", HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+        UserDetails userDetails = claimsOnly
+                ? userDetailsFromClaims(token)
+                : myUserDetails.loadUserByUsername(token.getSubject());
         return new UsernamePasswordAuthenticationToken(userDetails, "", userDetails.getAuthorities());
     }
 
+    private boolean isCurrent(JwtToken token) {
+        Integer userId = token.getUserId();
+        Integer epoch = token.getEpoch();
+        return userId != null && epoch != null && tokenEpochService.isCurrent(token.getSubject(), userId, epoch);
+    }
+
+    private UserDetails userDetailsFromClaims(JwtToken token) {
+        return org.springframework.security.core.userdetails.User
+                .withUsername(token.getSubject())
+                .password("")
+                .authorities(token.getAuthorities())
+                .build();
+    }
+
     public String getUsername(String token) {
-        return Jwts.parser().setSigningKey(secretKey).parseClaimsJws(token).getBody().getSubject();
+        return parseToken(token).getSubject();
     }
 
     public String resolveToken(HttpServletRequest req) {
@@ -76,13 +162,24 @@ public class JwtTokenProvider {
         return null;
     }
 
-    public boolean validateToken(String token) {
-        try {
-            Jwts.parser().setSigningKey(secretKey).parseClaimsJws(token);
-            return true;
-        } catch (JwtException | IllegalArgumentException e) {
+    //  returns the token already verified by JwtTokenFilter, parsing it only if the filter did not run for this request
+    public JwtToken resolveParsedToken(HttpServletRequest req) {
+        Object parsed = req.getAttribute(JwtToken.REQUEST_ATTRIBUTE);
+        if (parsed instanceof JwtToken) {
+            return (JwtToken) parsed;
+        }
+        String token = resolveToken(req);
+        if (token == null) {
             throw new CustomException("Expired or invalid JWT token", HttpStatus.INTERNAL_SERVER_ERROR);
         }
+        JwtToken jwtToken = parseToken(token);
+        req.setAttribute(JwtToken.REQUEST_ATTRIBUTE, jwtToken);
+        return jwtToken;
+    }
+
+    public boolean validateToken(String token) {
+        parseToken(token);
+        return true;
     }
 
 }
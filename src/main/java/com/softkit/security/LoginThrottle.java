@@ -0,0 +1,66 @@
+package com.softkit.security;
+
+import com.softkit.exception.TooManyRequestsException;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.Locale;
+
+/**
+ * Admission check in front of signin and signup, which are public and trigger BCrypt work.
+ * Every attempt takes a token from the bucket of the client address and from the bucket of the target account,
+ * so neither one client spraying accounts nor many clients hammering one account get through.
+ * Signin takes the account token only once the input is resolved to a user, with the same query that loads it.
+ */
+@Service
+public class LoginThrottle {
+
+    private final RateLimiter rateLimiter;
+
+    private final int clientCapacity;
+    private final double clientRefillPerSecond;
+    private final int accountCapacity;
+    private final double accountRefillPerSecond;
+
+    public LoginThrottle(ObjectProvider<StringRedisTemplate> redisTemplate,
+                         @Value("${security.throttle.mode:local}") String mode,
+                         @Value("${security.throttle.max-buckets:100000}") int maxBuckets,
+                         @Value("${security.throttle.client.capacity:20}") int clientCapacity,
+                         @Value("${security.throttle.client.refill-per-minute:20}") int clientRefillPerMinute,
+                         @Value("${security.throttle.account.capacity:5}") int accountCapacity,
+                         @Value("${security.throttle.account.refill-per-minute:5}") int accountRefillPerMinute) {
+        this.rateLimiter = "redis".equals(mode)
+                ? new RedisRateLimiter(redisTemplate.getObject())
+                : new LocalRateLimiter(maxBuckets);
+        this.clientCapacity = clientCapacity;
+        this.clientRefillPerSecond = clientRefillPerMinute / 60.0;
+        this.accountCapacity = accountCapacity;
+        this.accountRefillPerSecond = accountRefillPerMinute / 60.0;
+    }
+
+    public void acquire(HttpServletRequest request, String account) {
+        acquireClient(request);
+        if (account != null) {
+            acquireAccount(account);
+        }
+    }
+
+    public void acquireClient(HttpServletRequest request) {
+        check(rateLimiter.tryAcquire("client:" + request.getRemoteAddr(), clientCapacity, clientRefillPerSecond));
+    }
+
+    //  signin passes the resolved username, so the username and the email of an account share one bucket
+    public void acquireAccount(String account) {
+        check(rateLimiter.tryAcquire("account:" + account.toLowerCase(Locale.ROOT), accountCapacity, accountRefillPerSecond));
+    }
+
+    private static void check(long wait) {
+        if (wait > 0) {
+            throw new TooManyRequestsException("Too many attempts, try again later", (wait + 999) / 1000);
+        }
+    }
+
+}
@@ -3,6 +3,8 @@ package com.softkit.security;
 import com.softkit.model.User;
 import com.softkit.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
@@ -14,7 +16,10 @@ public class ProjectUserDetailsService implements UserDetailsService {
 
     private final UserRepository userRepository;
 
+    //  per request when the authentication is not built from the token claims, concurrent misses share one query;
+    //  signin authenticates the user it loaded itself, so nothing here hands the cached details to the provider
     @Override
+    @Cacheable(cacheNames = "userDetails", key = "#username", sync = true)
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
         final User user = userRepository.findByUsername(username);
 
@@ -22,8 +27,16 @@ public class ProjectUserDetailsService implements UserDetailsService {
             throw new UsernameNotFoundException("User '" + username + "' not found");
         }
 
+        return toUserDetails(user);
+    }
+
+    @CacheEvict(cacheNames = "userDetails", key = "#username")
+    public void evict(String username) {
+    }
+
+    public UserDetails toUserDetails(User user) {
         return org.springframework.security.core.userdetails.User
-                .withUsername(username)
+                .withUsername(user.getUsername())
                 .password(user.getPassword())
                 .authorities(user.getRoles())
                 .accountExpired(false)
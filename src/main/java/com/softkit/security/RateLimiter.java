@@ -0,0 +1,15 @@
+package com.softkit.security;
+
+/**
+ * Token bucket rate limiter: each key gets {@code capacity} tokens that refill at a steady rate.
+ */
+public interface RateLimiter {
+
+    /**
+     * Takes one token from the bucket of the key.
+     *
+     * @return 0 when the token was taken, otherwise milliseconds until the next token is available
+     */
+    long tryAcquire(String key, int capacity, double refillPerSecond);
+
+}
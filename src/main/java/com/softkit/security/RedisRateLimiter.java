@@ -0,0 +1,48 @@
+package com.softkit.security;
+
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.util.Collections;
+
+/**
+ * Buckets kept in Redis, so the limits hold across all nodes. Refill and take run atomically in one script,
+ * and an idle bucket expires once it would be full again. The script reads the time of the Redis server,
+ * so clock differences between the nodes don't move the refill.
+ */
+public class RedisRateLimiter implements RateLimiter {
+
+    private static final RedisScript<Long> TOKEN_BUCKET = new DefaultRedisScript<>(
+            "redis.replicate_commands()\n" +
+            "local capacity = tonumber(ARGV[1])\n" +
+            "local refillPerMillis = tonumber(ARGV[2])\n" +
+            "local time = redis.call('TIME')\n" +
+            "local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)\n" +
+            "local bucket = redis.call('HMGET', KEYS[1], 'tokens', 'ts')\n" +
+            "local tokens = tonumber(bucket[1]) or capacity\n" +
+            "local ts = tonumber(bucket[2]) or now\n" +
+            "tokens = math.min(capacity, tokens + math.max(0, now - ts) * refillPerMillis)\n" +
+            "local wait = 0\n" +
+            "if tokens >= 1 then tokens = tokens - 1 else wait = math.ceil((1 - tokens) / refillPerMillis) end\n" +
+            "redis.call('HSET', KEYS[1], 'tokens', tostring(tokens), 'ts', now)\n" +
+            "redis.call('PEXPIRE', KEYS[1], math.ceil(capacity / refillPerMillis))\n" +
+            "return wait",
+            Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+
+    public RedisRateLimiter(StringRedisTemplate redisTemplate) {
+        this.redisTemplate = redisTemplate;
+    }
+
+    @Override
+    public long tryAcquire(String key, int capacity, double refillPerSecond) {
+        Long wait = redisTemplate.execute(TOKEN_BUCKET,
+                Collections.singletonList("rate-limit:" + key),
+                String.valueOf(capacity),
+                String.valueOf(refillPerSecond / 1000));
+        return wait == null ? 0 : wait;
+    }
+
+}
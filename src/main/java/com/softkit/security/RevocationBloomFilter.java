@@ -0,0 +1,67 @@
+package com.softkit.security;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free Bloom filter over token ids. A negative answer is definite, so almost every request
+ * is cleared without touching the exact revocation set.
+ */
+class RevocationBloomFilter {
+
+    private static final int HASHES = 7;
+
+    private final AtomicLongArray bits;
+    private final long bitCount;
+
+    //  ~10 bits per expected entry gives about 1% false positives with 7 hashes
+    RevocationBloomFilter(int expectedEntries) {
+        int words = Math.max(1, (int) (((long) expectedEntries * 10 + 63) / 64));
+        this.bits = new AtomicLongArray(words);
+        this.bitCount = (long) words * 64;
+    }
+
+    void add(String id) {
+        long hash1 = hash1(id);
+        long hash2 = hash2(id);
+        for (int i = 0; i < HASHES; i++) {
+            long bit = Math.floorMod(hash1 + i * hash2, bitCount);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long current;
+            do {
+                current = bits.get(word);
+            } while ((current & mask) == 0 && !bits.compareAndSet(word, current, current | mask));
+        }
+    }
+
+    boolean mightContain(String id) {
+        long hash1 = hash1(id);
+        long hash2 = hash2(id);
+        for (int i = 0; i < HASHES; i++) {
+            long bit = Math.floorMod(hash1 + i * hash2, bitCount);
+            if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long hash1(String id) {
+        long h = id.hashCode();
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        return h ^ (h >>> 33);
+    }
+
+    //  FNV-1a, independent from String.hashCode, forced odd so the probe sequence never degenerates
+    private static long hash2(String id) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : id.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b;
+            h *= 0x100000001b3L;
+        }
+        return h | 1;
+    }
+
+}
@@ -0,0 +1,94 @@
+package com.softkit.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.softkit.cluster.ClusterEventBus;
+import com.softkit.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import java.time.Duration;
+
+/**
+ * Keeps the current token epoch of recently seen users, so the JWT filter
+ * can reject tokens of deleted users or tokens issued before a forced logout without a query per request.
+ * Evictions are broadcast, so the other nodes reload the stamp too. Stamps also expire after a while,
+ * which bounds how long a node trusts one when a broadcast is lost.
+ */
+@Service
+@RequiredArgsConstructor
+public class TokenEpochService {
+
+    private static final String CHANNEL = "token-epoch-evictions";
+
+    private static final UserRepository.TokenStamp DELETED = new UserRepository.TokenStamp() {
+        @Override
+        public Integer getId() {
+            return null;
+        }
+
+        @Override
+        public int getTokenEpoch() {
+            return -1;
+        }
+    };
+
+    private final UserRepository userRepository;
+    private final ClusterEventBus clusterEventBus;
+
+    @Value("${security.jwt.epoch.max-entries:100000}")
+    private long maxEntries;
+
+    @Value("${security.jwt.epoch.expire-after-write:5m}")
+    private Duration expireAfterWrite;
+
+    private Cache<String, UserRepository.TokenStamp> stamps;
+
+    @PostConstruct
+    protected void init() {
+        stamps = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(expireAfterWrite)
+                .build();
+        clusterEventBus.subscribe(CHANNEL, stamps::invalidate);
+    }
+
+    public boolean isCurrent(String username, Integer userId, int tokenEpoch) {
+        UserRepository.TokenStamp stamp = stamps.getIfPresent(username);
+        if (stamp == null) {
+            // loaded outside the cache, a query must not hold a lock other usernames hash to
+            stamp = userRepository.findTokenStampByUsername(username).orElse(DELETED);
+            stamps.put(username, stamp);
+        }
+        return stamp != DELETED && stamp.getId().equals(userId) && stamp.getTokenEpoch() == tokenEpoch;
+    }
+
+    //  invalidates every token issued to the user so far
+    @Transactional
+    public void revokeAll(String username) {
+        userRepository.incrementTokenEpoch(username);
+        evictAfterCommit(username);
+    }
+
+    //  evicting before commit would let a concurrent request cache the old stamp again
+    public void evictAfterCommit(String username) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                evict(username);
+            }
+        });
+    }
+
+    //  must be called after anything that changes the stamp: delete, signup with a previously deleted username
+    public void evict(String username) {
+        stamps.invalidate(username);
+        clusterEventBus.publish(CHANNEL, username);
+    }
+
+}
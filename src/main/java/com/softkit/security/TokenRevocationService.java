@@ -0,0 +1,101 @@
+package com.softkit.security;
+
+import com.softkit.cluster.ClusterEventBus;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Revocation of single tokens before they expire (logout). Revoked token ids are kept until the token
+ * would expire anyway, behind a Bloom filter so the check on every request is a few bit reads.
+ * Revocations are broadcast, so a token logged out on one node is rejected by all of them.
+ */
+@Service
+public class TokenRevocationService {
+
+    private static final String CHANNEL = "token-revocations";
+
+    private final ClusterEventBus clusterEventBus;
+    private final TokenEpochService tokenEpochService;
+    private final int maxEntries;
+
+    //  token id -> expiration time in millis
+    private final ConcurrentMap<String, Long> revoked = new ConcurrentHashMap<>();
+
+    private volatile RevocationBloomFilter bloomFilter;
+
+    public TokenRevocationService(ClusterEventBus clusterEventBus,
+                                  TokenEpochService tokenEpochService,
+                                  @Value("${security.jwt.revocation.max-entries:100000}") int maxEntries) {
+        this.clusterEventBus = clusterEventBus;
+        this.tokenEpochService = tokenEpochService;
+        this.maxEntries = maxEntries;
+        this.bloomFilter = new RevocationBloomFilter(maxEntries);
+    }
+
+    @PostConstruct
+    protected void init() {
+        clusterEventBus.subscribe(CHANNEL, message -> {
+            int separator = message.indexOf(' ');
+            add(message.substring(0, separator), Long.parseLong(message.substring(separator + 1)));
+        });
+    }
+
+    public void revoke(JwtToken token) {
+        if (token.getId() == null || token.getExpiration() == null) {
+            // tokens issued before ids were added can only be revoked together with the rest of the user's tokens
+            revokeAll(token.getSubject());
+            return;
+        }
+        if (revoked.size() >= maxEntries) {
+            prune();
+        }
+        if (revoked.size() >= maxEntries) {
+            // still full of live entries, fall back to the coarser but constant-size epoch revocation
+            revokeAll(token.getSubject());
+            return;
+        }
+        add(token.getId(), token.getExpiration().getTime());
+        clusterEventBus.publish(CHANNEL, token.getId() + " " + token.getExpiration().getTime());
+    }
+
+    public void revokeAll(String username) {
+        tokenEpochService.revokeAll(username);
+    }
+
+    public boolean isRevoked(JwtToken token) {
+        String id = token.getId();
+        return id != null && bloomFilter.mightContain(id) && revoked.containsKey(id);
+    }
+
+    //  expired tokens are rejected by the signature check anyway, so their ids can go; the filter is rebuilt from what is left
+    @Scheduled(fixedDelayString = "${security.jwt.revocation.prune-interval:60000}")
+    public void prune() {
+        prune(System.currentTimeMillis());
+    }
+
+    public synchronized void prune(long now) {
+        revoked.values().removeIf(expiration -> expiration <= now);
+        RevocationBloomFilter rebuilt = new RevocationBloomFilter(maxEntries);
+        revoked.keySet().forEach(rebuilt::add);
+        bloomFilter = rebuilt;
+    }
+
+    public int size() {
+        return revoked.size();
+    }
+
+    //  synchronized with prune, otherwise an id added while the filter is rebuilt could be missing from the new filter
+    private synchronized void add(String id, long expiration) {
+        if (expiration <= System.currentTimeMillis()) {
+            return;
+        }
+        revoked.put(id, expiration);
+        bloomFilter.add(id);
+    }
+
+}
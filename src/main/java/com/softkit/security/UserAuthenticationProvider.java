@@ -0,0 +1,77 @@
+package com.softkit.security;
+
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.InternalAuthenticationServiceException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.dao.AbstractUserDetailsAuthenticationProvider;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+/**
+ * Password authentication used by the AuthenticationManager. When the caller already loaded the user
+ * (signin does, to resolve username or email) it passes it as {@link PreloadedUser} details and the lookup is skipped.
+ */
+@Component
+public class UserAuthenticationProvider extends AbstractUserDetailsAuthenticationProvider {
+
+    private static final String USER_NOT_FOUND_PASSWORD = "userNotFoundPassword";
+
+    private final ProjectUserDetailsService userDetailsService;
+    private final PasswordEncoder passwordEncoder;
+
+    private volatile String userNotFoundEncodedPassword;
+
+    public UserAuthenticationProvider(ProjectUserDetailsService userDetailsService, PasswordEncoder passwordEncoder) {
+        this.userDetailsService = userDetailsService;
+        this.passwordEncoder = passwordEncoder;
+    }
+
+    @Override
+    protected UserDetails retrieveUser(String username, UsernamePasswordAuthenticationToken authentication) {
+        if (authentication.getDetails() instanceof PreloadedUser) {
+            return ((PreloadedUser) authentication.getDetails()).getUserDetails();
+        }
+        try {
+            return userDetailsService.loadUserByUsername(username);
+        } catch (UsernameNotFoundException e) {
+            mitigateAgainstTimingAttack(authentication);
+            throw e;
+        } catch (RuntimeException e) {
+            throw new InternalAuthenticationServiceException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    protected void additionalAuthenticationChecks(UserDetails userDetails, UsernamePasswordAuthenticationToken authentication) {
+        if (authentication.getCredentials() == null
+                || !passwordEncoder.matches(authentication.getCredentials().toString(), userDetails.getPassword())) {
+            throw new BadCredentialsException(messages.getMessage("AbstractUserDetailsAuthenticationProvider.badCredentials", "Bad credentials"));
+        }
+    }
+
+    //  unknown users must take as long as a wrong password, otherwise response time tells which usernames exist
+    private void mitigateAgainstTimingAttack(UsernamePasswordAuthenticationToken authentication) {
+        if (authentication.getCredentials() != null) {
+            if (userNotFoundEncodedPassword == null) {
+                userNotFoundEncodedPassword = passwordEncoder.encode(USER_NOT_FOUND_PASSWORD);
+            }
+            passwordEncoder.matches(authentication.getCredentials().toString(), userNotFoundEncodedPassword);
+        }
+    }
+
+    public static final class PreloadedUser {
+
+        private final UserDetails userDetails;
+
+        public PreloadedUser(UserDetails userDetails) {
+            this.userDetails = userDetails;
+        }
+
+        public UserDetails getUserDetails() {
+            return userDetails;
+        }
+    }
+
+}
@@ -0,0 +1,139 @@
+package com.softkit.security;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded LRU cache of tokens whose signature was already checked, keyed by the SHA-256 digest of the raw token
+ * so the bearer tokens themselves are not kept in memory. Every entry expires together with its token.
+ * The map is split into independently locked stripes, so request threads rarely contend on the same lock.
+ */
+public class VerifiedTokenCache implements MeterBinder {
+
+    private static final int STRIPES = 16;
+
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public VerifiedTokenCache(int maximumSize) {
+        int stripeSize = Math.max(1, maximumSize / STRIPES);
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe(stripeSize);
+        }
+    }
+
+    public JwtToken get(String token) {
+        ByteBuffer key = digest(token);
+        Stripe stripe = stripeFor(key);
+        synchronized (stripe) {
+            JwtToken cached = stripe.get(key);
+            if (cached == null) {
+                misses.increment();
+                return null;
+            }
+            if (cached.getExpiration() == null || cached.getExpiration().getTime() <= System.currentTimeMillis()) {
+                stripe.remove(key);
+                evictions.increment();
+                misses.increment();
+                return null;
+            }
+            hits.increment();
+            return cached;
+        }
+    }
+
+    public void put(String token, JwtToken jwtToken) {
+        if (jwtToken.getExpiration() == null) {
+            return;
+        }
+        ByteBuffer key = digest(token);
+        Stripe stripe = stripeFor(key);
+        synchronized (stripe) {
+            stripe.put(key, jwtToken);
+        }
+    }
+
+    public long size() {
+        long size = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.size();
+            }
+        }
+        return size;
+    }
+
+    //  jwt.verified.cache{result=hit|miss} and jwt.verified.cache.evictions, read from the adders on every scrape
+    @Override
+    public void bindTo(MeterRegistry meterRegistry) {
+        FunctionCounter.builder("jwt.verified.cache", this, VerifiedTokenCache::hitCount)
+                .tag("result", "hit")
+                .register(meterRegistry);
+        FunctionCounter.builder("jwt.verified.cache", this, VerifiedTokenCache::missCount)
+                .tag("result", "miss")
+                .register(meterRegistry);
+        FunctionCounter.builder("jwt.verified.cache.evictions", this, VerifiedTokenCache::evictionCount)
+                .description("Entries dropped because the cache was full or the token expired")
+                .register(meterRegistry);
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    private Stripe stripeFor(ByteBuffer key) {
+        return stripes[key.hashCode() & (STRIPES - 1)];
+    }
+
+    private static ByteBuffer digest(String token) {
+        return ByteBuffer.wrap(SHA_256.get().digest(token.getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    private final class Stripe extends LinkedHashMap<ByteBuffer, JwtToken> {
+
+        private final int maximumSize;
+
+        private Stripe(int maximumSize) {
+            super(16, 0.75f, true);
+            this.maximumSize = maximumSize;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<ByteBuffer, JwtToken> eldest) {
+            if (size() > maximumSize) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+
+}
@@ -1,6 +1,9 @@
 package com.softkit.security;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -17,6 +20,7 @@ import org.springframework.security.web.header.writers.StaticHeadersWriter;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
+@Slf4j
 @Configuration
 @EnableWebSecurity
 @RequiredArgsConstructor
@@ -25,7 +29,18 @@ public class WebSecurityConfig extends WebSecurityConfigurerAdapter {
 
     private final JwtTokenProvider jwtTokenProvider;
 
+    @Value("${security.password.hashing.threads:#{T(java.lang.Runtime).getRuntime().availableProcessors()}}")
+    private int hashingThreads;
 
+    @Value("${security.password.hashing.queue-capacity:64}")
+    private int hashingQueueCapacity;
+
+    //  fixed BCrypt cost, 0 means "calibrate on startup against target-millis"
+    @Value("${security.password.bcrypt.strength:0}")
+    private int bcryptStrength;
+
+    @Value("${security.password.bcrypt.target-millis:250}")
+    private long bcryptTargetMillis;
 
     @Bean
     public WebMvcConfigurer corsConfigurer() {
@@ -86,8 +101,13 @@ public class WebSecurityConfig extends WebSecurityConfigurerAdapter {
     }
 
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder(12);
+    public PasswordEncoder passwordEncoder(MeterRegistry meterRegistry) {
+        int strength = bcryptStrength;
+        if (strength <= 0) {
+            strength = BCryptCostCalibrator.calibrate(bcryptTargetMillis);
+            log.info("BCrypt cost calibrated to {} for a target of {} ms", strength, bcryptTargetMillis);
+        }
+        return new BoundedPasswordEncoder(new BCryptPasswordEncoder(strength), hashingThreads, hashingQueueCapacity, meterRegistry);
     }
 
     @Override
@@ -3,89 +3,114 @@ package com.softkit.service;
 import com.google.common.collect.Lists;
 import com.softkit.dto.InviteResponseDto;
 import com.softkit.exception.CustomException;
-import com.softkit.mapper.InviteMapper;
 import com.softkit.model.Invite;
 import com.softkit.model.Status;
 import com.softkit.model.User;
+import com.softkit.repository.BatchWriter;
 import com.softkit.repository.InviteRepository;
 import com.softkit.repository.UserRepository;
 import com.softkit.security.JwtTokenProvider;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import javax.servlet.http.HttpServletRequest;
 import java.sql.Date;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 @Service
 @RequiredArgsConstructor
 public class InviteService {
+
+    //  stays below the IN list limits of the databases we run on
+    private static final int CHUNK_SIZE = 500;
+
     @Autowired
     private final InviteRepository inviteRepository;
     @Autowired
     private final UserRepository userRepository;
     private final EmailSenderService emailSenderService;
-    private final InviteMapper inviteMapper;
     private final JwtTokenProvider jwtTokenProvider;
+    private final BatchWriter batchWriter;
 
     public void inviteUser(String email, HttpServletRequest request){
 
-        if (userRepository.existsByEmailIgnoreCase(email.toLowerCase())) {
+        if (userRepository.existsByEmailLower(User.toLowerCase(email))) {
             throw new CustomException("Email is already in use", HttpStatus.UNPROCESSABLE_ENTITY);
         }
 
-        User user = userRepository.findByUsername(jwtTokenProvider.getUsername(jwtTokenProvider.resolveToken(request)));
+        User user = userRepository.findByUsername(jwtTokenProvider.resolveParsedToken(request).getSubject());
 
         Invite inviteUser = new Invite();
 
         inviteUser.setEmail(email);
         inviteUser.setIdUser(user.getId());
         inviteUser.setDateSentInvite(Date.valueOf(LocalDate.now()));
-        inviteUser.setStatus(Lists.newArrayList(Status.PENDING));
+        inviteUser.setStatus(Status.PENDING);
 
         inviteRepository.save(inviteUser);
 
+        sendInvite(email, user);
+    }
+
+    private void sendInvite(String email, User user) {
         String url = "http://localhost:8080/users/signup";
         String subject = "Invite";
         String body = "You have been invited by " + user.getUsername() + " to register on our website. Follow the link and register:\n"+url;
         emailSenderService.sendSimpleEmail(email, body, subject);
-
     }
 
-    public List<InviteResponseDto> listAllInviteUsers(HttpServletRequest request){
-
-        User user = userRepository.findByUsername(jwtTokenProvider.getUsername(jwtTokenProvider.resolveToken(request)));
-
-        List<InviteResponseDto> inviteUserResponse = new ArrayList<>();
-        List<Invite> inviteUsers = new ArrayList<>();
-
-        int page = 0,size = 3;
-
-        int totalpages = -1;
-        do {
-            PageRequest pageRequest = PageRequest.of(page, size);
-            Page<Invite> inviteUserPage = inviteRepository.findByIdUserOrderByDateSentInviteDescStatusDesc(user.getId(),pageRequest);
-            inviteUsers.addAll(inviteUserPage.getContent());
-            totalpages = inviteUserPage.getTotalPages();
-            page++;
-            inviteUserPage.nextPageable();
+    //  invites the emails that are neither registered nor invited yet, returns how many were invited.
+    //  The existing ones are looked up per chunk and the invites are inserted in JDBC batches
+    @Transactional
+    public int inviteAll(Collection<String> emails, HttpServletRequest request) {
+        User user = userRepository.findByUsername(jwtTokenProvider.resolveParsedToken(request).getSubject());
+
+        Map<String, String> byLower = new LinkedHashMap<>();
+        emails.forEach(email -> byLower.putIfAbsent(User.toLowerCase(email), email));
+        for (List<String> chunk : Lists.partition(new ArrayList<>(byLower.keySet()), CHUNK_SIZE)) {
+            userRepository.findEmailLowersIn(chunk).forEach(byLower::remove);
+            inviteRepository.findEmailLowersIn(chunk).forEach(byLower::remove);
         }
-        while(page < totalpages);
 
-        userRepository.findById(user.getId());
-
-        for(Invite invite : inviteUsers){
-            inviteUserResponse.add(inviteMapper.inviteToInviteResponseDto(invite));
+        Date today = Date.valueOf(LocalDate.now());
+        List<Invite> invites = new ArrayList<>(byLower.size());
+        for (String email : byLower.values()) {
+            invites.add(Invite.builder()
+                    .email(email)
+                    .idUser(user.getId())
+                    .dateSentInvite(today)
+                    .status(Status.PENDING)
+                    .build());
         }
+        batchWriter.persistAll(invites);
+
+        // a mail can't be taken back, so nobody is invited before the invites are committed
+        List<String> invited = new ArrayList<>(byLower.values());
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                for (String email : invited) {
+                    sendInvite(email, user);
+                }
+            }
+        });
+        return invites.size();
+    }
 
-        return inviteUserResponse;
+    //  every invite of the user in one projection query, instead of loading the user and then the invites page by page
+    @Transactional(readOnly = true)
+    public List<InviteResponseDto> listAllInviteUsers(HttpServletRequest request){
+        return inviteRepository.findResponsesByUsername(jwtTokenProvider.resolveParsedToken(request).getSubject());
     }
 
 }
@@ -0,0 +1,177 @@
+package com.softkit.service;
+
+import com.google.common.collect.Lists;
+import com.softkit.dto.BulkResultDTO;
+import com.softkit.exception.CustomException;
+import com.softkit.model.Role;
+import com.softkit.model.RolesConverter;
+import com.softkit.model.User;
+import com.softkit.repository.UserRepository;
+import com.softkit.security.TokenEpochService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.StringUtils;
+
+import javax.validation.Validator;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.ToIntFunction;
+
+/**
+ * Admin operations over many users at once. Each request runs in one transaction with a few set based
+ * statements per chunk of usernames instead of a round trip per user, and reports the outcome of every item.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class UserBulkService {
+
+    //  stays below the IN list limits of the databases we run on
+    private static final int CHUNK_SIZE = 500;
+
+    private final UserRepository userRepository;
+    private final TokenEpochService tokenEpochService;
+    private final CacheManager cacheManager;
+    private final Validator validator;
+
+    @Value("${app.users.bulk.max-size:10000}")
+    private int maxSize;
+
+    @Transactional
+    public List<BulkResultDTO> delete(List<String> usernames) {
+        return applyToExisting(usernames, userRepository::deleteByUsernameIn);
+    }
+
+    @Transactional
+    public List<BulkResultDTO> setEnabled(List<String> usernames, boolean enabled) {
+        return applyToExisting(usernames, enabled ? userRepository::enableByUsernameIn : userRepository::disableByUsernameIn);
+    }
+
+    @Transactional
+    public List<BulkResultDTO> setRoles(List<String> usernames, List<Role> roles) {
+        if (roles == null || roles.isEmpty()) {
+            throw new CustomException("At least one role is required", HttpStatus.UNPROCESSABLE_ENTITY);
+        }
+        int rolesMask = RolesConverter.toMask(roles);
+        return applyToExisting(usernames, chunk -> userRepository.updateRolesByUsernameIn(rolesMask, chunk));
+    }
+
+    //  renames are different per row, so they go through the entities and are flushed together on commit
+    @Transactional
+    public List<BulkResultDTO> rename(Map<String, String> renames) {
+        checkSize(renames.size());
+        Map<String, User> users = new HashMap<>();
+        Set<String> takenLowers = new HashSet<>();
+        for (List<String> chunk : Lists.partition(new ArrayList<>(renames.keySet()), CHUNK_SIZE)) {
+            userRepository.findAllByUsernameIn(chunk).forEach(user -> users.put(user.getUsername(), user));
+        }
+        List<String> targetLowers = new ArrayList<>();
+        renames.values().stream().filter(this::isValidUsername).forEach(target -> targetLowers.add(User.toLowerCase(target)));
+        for (List<String> chunk : Lists.partition(targetLowers, CHUNK_SIZE)) {
+            takenLowers.addAll(userRepository.findUsernameLowersIn(chunk));
+        }
+
+        List<BulkResultDTO> results = new ArrayList<>();
+        Set<String> affected = new HashSet<>();
+        renames.forEach((username, target) -> {
+            User user = users.get(username);
+            BulkResultDTO.Outcome outcome;
+            if (!isValidUsername(target)) {
+                outcome = BulkResultDTO.Outcome.INVALID;
+            } else if (user == null) {
+                outcome = BulkResultDTO.Outcome.NOT_FOUND;
+            } else if (!user.getUsernameLower().equals(User.toLowerCase(target)) && !takenLowers.add(User.toLowerCase(target))) {
+                outcome = BulkResultDTO.Outcome.CONFLICT;
+            } else {
+                user.setUsername(target);
+                affected.add(username);
+                affected.add(target);
+                outcome = BulkResultDTO.Outcome.DONE;
+            }
+            results.add(new BulkResultDTO(username, outcome));
+        });
+        evictAfterCommit(affected);
+        return results;
+    }
+
+    //  checked against the constraints of User.username here, on flush a single bad name would roll back the whole request
+    private boolean isValidUsername(String username) {
+        return StringUtils.hasText(username) && validator.validateValue(User.class, "username", username).isEmpty();
+    }
+
+    private List<BulkResultDTO> applyToExisting(List<String> usernames, ToIntFunction<Collection<String>> statement) {
+        checkSize(usernames.size());
+        Set<String> existing = new HashSet<>();
+        for (List<String> chunk : Lists.partition(new ArrayList<>(new LinkedHashSet<>(usernames)), CHUNK_SIZE)) {
+            List<String> found = userRepository.findUsernamesIn(chunk);
+            if (!found.isEmpty()) {
+                statement.applyAsInt(found);
+                existing.addAll(found);
+            }
+        }
+        evictAfterCommit(existing);
+
+        List<BulkResultDTO> results = new ArrayList<>(usernames.size());
+        for (String username : usernames) {
+            results.add(new BulkResultDTO(username,
+                    existing.contains(username) ? BulkResultDTO.Outcome.DONE : BulkResultDTO.Outcome.NOT_FOUND));
+        }
+        return results;
+    }
+
+    private void checkSize(int size) {
+        if (size > maxSize) {
+            throw new CustomException("At most " + maxSize + " users per request", HttpStatus.UNPROCESSABLE_ENTITY);
+        }
+    }
+
+    //  only the touched usernames are dropped, evicting before commit would let a concurrent read cache the old row
+    private void evictAfterCommit(Collection<String> usernames) {
+        if (usernames.isEmpty()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                Cache searchUser = cacheManager.getCache("searchUser");
+                Cache userDetails = cacheManager.getCache("userDetails");
+                for (String username : usernames) {
+                    evictQuietly(searchUser, username);
+                    evictQuietly(userDetails, username);
+                    try {
+                        tokenEpochService.evict(username);
+                    } catch (RuntimeException e) {
+                        log.warn("Token epoch evict of {} failed, other nodes keep the stamp until it expires", username, e);
+                    }
+                }
+            }
+        });
+    }
+
+    //  the write is committed already and the CacheErrorHandler does not cover afterCommit, so a failure only costs staleness
+    private static void evictQuietly(Cache cache, String username) {
+        if (cache == null) {
+            return;
+        }
+        try {
+            cache.evict(username);
+        } catch (RuntimeException e) {
+            log.warn("Cache {} evict of {} failed, the entry stays until it expires", cache.getName(), username, e);
+        }
+    }
+
+}
@@ -1,23 +1,32 @@
 package com.softkit.service;
 
-import com.google.common.collect.Lists;
 import com.opencsv.CSVReader;
 import com.opencsv.CSVWriter;
+import com.softkit.configuration.ReadYourWritesTracker;
+import com.softkit.dto.UserPageDTO;
+import com.softkit.dto.UserResponseDTO;
 import com.softkit.exception.CustomException;
 import com.softkit.fileConfig.FileUploadUtil;
-import com.softkit.model.Invite;
 import com.softkit.model.Role;
 import com.softkit.model.Status;
 import com.softkit.model.User;
 import com.softkit.repository.InviteRepository;
 import com.softkit.repository.UserRepository;
 import com.softkit.security.JwtTokenProvider;
+import com.softkit.security.LoginThrottle;
+import com.softkit.security.ProjectUserDetailsService;
+import com.softkit.security.TokenEpochService;
+import com.softkit.security.TokenRevocationService;
+import com.softkit.security.UserAuthenticationProvider;
 import lombok.NoArgsConstructor;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
 import org.springframework.core.env.Environment;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
@@ -26,6 +35,7 @@ import org.springframework.security.authentication.UsernamePasswordAuthenticatio
 import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 import org.springframework.web.multipart.MultipartFile;
 
@@ -34,6 +44,7 @@ import java.io.*;
 import java.sql.Date;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Objects;
 import java.util.UUID;
@@ -41,6 +52,10 @@ import java.util.UUID;
 @Service
 @RequiredArgsConstructor
 public class UserService {
+
+    //  searchUser is keyed by username, mutations of the signed in user take it from the token
+    private static final String TOKEN_USERNAME = "@jwtTokenProvider.resolveParsedToken(#request).subject";
+
     @Autowired
     private final UserRepository userRepository;
     @Autowired
@@ -48,6 +63,11 @@ public class UserService {
     private final PasswordEncoder passwordEncoder;
     private final JwtTokenProvider jwtTokenProvider;
     private final AuthenticationManager authenticationManager;
+    private final TokenEpochService tokenEpochService;
+    private final TokenRevocationService tokenRevocationService;
+    private final ProjectUserDetailsService projectUserDetailsService;
+    private final ReadYourWritesTracker readYourWritesTracker;
+    private final LoginThrottle loginThrottle;
     @Autowired
     private final InviteService inviteService;
 
@@ -57,31 +77,38 @@ public class UserService {
     @Autowired
     private Environment env;
 
-    public User userFromToken(HttpServletRequest request){
+    @Value("${app.users.page.max-size:500}")
+    private int maxPageSize;
 
-        if (userRepository.existsByUsername(jwtTokenProvider.getUsername(jwtTokenProvider.resolveToken(request))))
-        {
-            return userRepository.findByUsername(jwtTokenProvider.getUsername(jwtTokenProvider.resolveToken(request)));
-        }
-        else {
-            throw new CustomException("Expired or invalid JWT token",HttpStatus.INTERNAL_SERVER_ERROR);
-        }
+    public User userFromToken(HttpServletRequest request){
 
+        String username = jwtTokenProvider.resolveParsedToken(request).getSubject();
 
+        return userRepository.findOneByUsername(username)
+                .orElseThrow(() -> new CustomException("Expired or invalid JWT token",HttpStatus.INTERNAL_SERVER_ERROR));
     }
 
     public String signin(String usernameOrEmail, String password) {
         try {
-
-            String username = usernameOrEmail;
-
-            if (userRepository.existsByEmailIgnoreCase(usernameOrEmail)){
-                username = userRepository.findByEmail(usernameOrEmail).getUsername();
+            // an email match wins over a username match, as it did when email was checked first
+            User user = userRepository.findAllByUsernameOrEmail(usernameOrEmail).stream()
+                    .min(Comparator.comparing(u -> !usernameOrEmail.equalsIgnoreCase(u.getEmail())))
+                    .orElse(null);
+            loginThrottle.acquireAccount(user == null ? usernameOrEmail : user.getUsername());
+
+            if (user == null) {
+                // still goes through the provider, so unknown users cost the same time as a wrong password
+                authenticationManager.authenticate(new UsernamePasswordAuthenticationToken(usernameOrEmail, password));
+                throw new CustomException("Invalid username/password supplied", HttpStatus.UNPROCESSABLE_ENTITY);
             }
 
-            authenticationManager.authenticate(new UsernamePasswordAuthenticationToken(username, password));
-            if (userRepository.findByUsername(username).isEnabled()){
-                return jwtTokenProvider.createToken(username, userRepository.findByUsername(username).getRoles());
+            UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(user.getUsername(), password);
+            authentication.setDetails(new UserAuthenticationProvider.PreloadedUser(projectUserDetailsService.toUserDetails(user)));
+            authenticationManager.authenticate(authentication);
+
+            if (user.isEnabled()){
+                rehashIfNeeded(user, password);
+                return jwtTokenProvider.createToken(user);
             }
             else {
                 throw  new CustomException("Not verified",HttpStatus.UNPROCESSABLE_ENTITY);
@@ -91,12 +118,21 @@ public class UserService {
         }
     }
 
+    //  moves the stored hash to the currently configured BCrypt cost, while we still have the raw password at hand
+    private void rehashIfNeeded(User user, String password) {
+        if (passwordEncoder.upgradeEncoding(user.getPassword())) {
+            user.setPassword(passwordEncoder.encode(password));
+            userRepository.save(user);
+            projectUserDetailsService.evict(user.getUsername());
+        }
+    }
+
     public void signup(User user) {
-        if (userRepository.existsByUsernameIgnoreCase(user.getUsername().toLowerCase())) {
+        if (userRepository.existsByUsernameLower(User.toLowerCase(user.getUsername()))) {
             throw new CustomException("Username is already in use", HttpStatus.UNPROCESSABLE_ENTITY);
         }
 
-        if (userRepository.existsByEmailIgnoreCase(user.getEmail().toLowerCase())) {
+        if (userRepository.existsByEmailLower(User.toLowerCase(user.getEmail()))) {
             throw new CustomException("Email is already in use", HttpStatus.UNPROCESSABLE_ENTITY);
         }
 
@@ -105,12 +141,9 @@ public class UserService {
         user.setVerificationCode(UUID.randomUUID() + "");
         user.setEnabled(false);
         userRepository.save(user);
+        tokenEpochService.evict(user.getUsername());
 
-        if (inviteRepository.existsByEmail(user.getEmail())) {
-            Invite userInvite = inviteRepository.findByEmail(user.getEmail());
-            userInvite.setStatus(Lists.newArrayList(Status.CLOSED));
-            inviteRepository.save(userInvite);
-        }
+        inviteRepository.updateStatusByEmailLower(User.toLowerCase(user.getEmail()), Status.CLOSED);
 
         String url = "http://localhost:8080/users/verify?code=" + user.getVerificationCode();
         String subject = "Thank you for registering";
@@ -118,38 +151,70 @@ public class UserService {
         emailSenderService.sendSimpleEmail(user.getEmail(), body, subject);
     }
 
-    public User whoami(HttpServletRequest request) {
-        return userFromToken(request);
+    @Transactional(readOnly = true)
+    public UserResponseDTO whoami(HttpServletRequest request) {
+        String username = jwtTokenProvider.resolveParsedToken(request).getSubject();
+        return userRepository.findResponseByUsername(username)
+                .orElseThrow(() -> new CustomException("Expired or invalid JWT token",HttpStatus.INTERNAL_SERVER_ERROR));
     }
 
     //  method must delete user, by username, throw appropriate exception is user doesn't exists
+    @Caching(evict = {
+            @CacheEvict(cacheNames = "searchUser", key = "#username"),
+            @CacheEvict(cacheNames = "userDetails", key = "#username")})
+    @Transactional
     public void deleteUsername(String username) {
-        if (userRepository.existsByUsername(username)) {
-            userRepository.deleteById(userRepository.findByUsername(username).getId());
-        }
-        else {
+        if (userRepository.deleteByUsername(username) == 0) {
             throw new CustomException("No such username", HttpStatus.UNPROCESSABLE_ENTITY);
         }
-
+        tokenEpochService.evictAfterCommit(username);
     }
 
     //  method must search user, by username, throw appropriate exception is user doesn't exists
-    @Cacheable(value = "searchUser",key = "#username")
-    public User search(String username) {
-        if (userRepository.existsByUsername(username)) {
-            return userRepository.findByUsername(username);
+    @Cacheable(value = "searchUser", key = "#username", sync = true)
+    @Transactional(readOnly = true)
+    public UserResponseDTO search(String username) {
+        return userRepository.findResponseByUsername(username)
+                .orElseThrow(() -> new CustomException("No such username", HttpStatus.UNPROCESSABLE_ENTITY));
+    }
+
+    //  keyset page over the user ids, the client passes the last id it got as "after" instead of an offset
+    @Transactional(readOnly = true)
+    public UserPageDTO listUsers(Integer after, int size, Role role, Boolean enabled,
+                                 LocalDate registeredFrom, LocalDate registeredTo) {
+        if (size < 1 || size > maxPageSize) {
+            throw new CustomException("Page size must be between 1 and " + maxPageSize, HttpStatus.UNPROCESSABLE_ENTITY);
+        }
+        // one extra row tells whether there is a next page, without counting
+        List<UserResponseDTO> users = userRepository.findPageAfter(after, size + 1, role, enabled,
+                registeredFrom != null ? Date.valueOf(registeredFrom) : null,
+                registeredTo != null ? Date.valueOf(registeredTo) : null);
+        if (users.size() <= size) {
+            return new UserPageDTO(users, null);
         }
-        else {
+        List<UserResponseDTO> page = new ArrayList<>(users.subList(0, size));
+        return new UserPageDTO(page, page.get(size - 1).getId());
+    }
+
+    //  revokes only the token of this request, other sessions of the user stay valid
+    public void logout(HttpServletRequest request) {
+        tokenRevocationService.revoke(jwtTokenProvider.resolveParsedToken(request));
+    }
+
+    //  revokes every token issued to the user so far
+    public void revokeTokens(String username) {
+        if (!userRepository.existsByUsername(username)) {
             throw new CustomException("No such username", HttpStatus.UNPROCESSABLE_ENTITY);
         }
+        tokenRevocationService.revokeAll(username);
     }
 
 //  method must create a new access token, similar to login
     public String refresh(HttpServletRequest request) {
         User user = userFromToken(request);
-        return jwtTokenProvider.createToken(user.getUsername(), user.getRoles());
+        return jwtTokenProvider.createToken(user);
     }
-    @CacheEvict(cacheNames = "searchUser", allEntries = true)
+    @CacheEvict(cacheNames = "searchUser", key = TOKEN_USERNAME)
     public void saveImage(MultipartFile multipartFile,HttpServletRequest request) throws IOException {
 
         User user = userFromToken(request);
@@ -157,6 +222,7 @@ public class UserService {
         String fileName = StringUtils.cleanPath(multipartFile.getOriginalFilename());
         user.setPhotos(fileName);
         userRepository.save(user);
+        readYourWritesTracker.recordWrite(user.getUsername());
         String uploadDir = env.getProperty("upload.path.image") + user.getId();
         FileUploadUtil.saveFile(uploadDir, fileName, multipartFile);
     }
@@ -169,53 +235,57 @@ public class UserService {
 
     }
 
-    @CacheEvict(cacheNames = "searchUser", allEntries = true)
+    @CacheEvict(cacheNames = "searchUser", key = TOKEN_USERNAME)
     public void updateData(String firstName,String lastName, HttpServletRequest request ){
-        User user = userFromToken(request);
-        user.setFirstName(firstName);
-        user.setLastName(lastName);
-        userRepository.save(user);
+        String username = jwtTokenProvider.resolveParsedToken(request).getSubject();
+        if (userRepository.updateNameByUsername(username, firstName, lastName) == 0) {
+            throw new CustomException("Expired or invalid JWT token", HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+        readYourWritesTracker.recordWrite(username);
     }
 
-    @CacheEvict(cacheNames = "searchUser", allEntries = true)
+    @CacheEvict(cacheNames = "searchUser", key = "#username")
     public void adminUpdateData(String username,String firstName,String lastName){
-        User userUpdate = userRepository.findByUsername(username);
-        userUpdate.setFirstName(firstName);
-        userUpdate.setLastName(lastName);
-        userRepository.save(userUpdate);
-
+        if (userRepository.updateNameByUsername(username, firstName, lastName) == 0) {
+            throw new CustomException("No such username", HttpStatus.UNPROCESSABLE_ENTITY);
+        }
     }
 
-    @CacheEvict(cacheNames = "searchUser", allEntries = true)
+    //  the searched email only changes once the new one is verified, so nothing is evicted here
     public void updateEmail(String email,HttpServletRequest request){
-        if (userRepository.existsByEmailIgnoreCase(email)){
+        if (userRepository.existsByEmailLower(User.toLowerCase(email))){
             throw new CustomException("The email is already in use by other users.", HttpStatus.UNPROCESSABLE_ENTITY);
         }
-        User user = userFromToken(request);
+        String username = jwtTokenProvider.resolveParsedToken(request).getSubject();
+        String verificationCode = userRepository.findVerificationCodeByUsername(username)
+                .orElseThrow(() -> new CustomException("Expired or invalid JWT token", HttpStatus.INTERNAL_SERVER_ERROR));
 
-        user.setUpdateEmail(email);
-        userRepository.save(user);
+        userRepository.updatePendingEmailByUsername(username, email);
+        readYourWritesTracker.recordWrite(username);
 
-        String url = "http://localhost:8080/users/verify/email?code=" + user.getVerificationCode();
+        String url = "http://localhost:8080/users/verify/email?code=" + verificationCode;
         String subject = "Verify email";
         String body = "You wanted to change your email, please confirm your email.\n"+url;
-        emailSenderService.sendSimpleEmail(user.getUpdateEmail(), body, subject);
+        emailSenderService.sendSimpleEmail(email, body, subject);
 
     }
 
-    public void verifyEmail(String code){
-        if (userRepository.existsByVerificationCode(code)){
-            User user = userRepository.findByVerificationCode(code);
-
-            user.setEmail(user.getUpdateEmail());
-            user.setUpdateEmail(null);
-            userRepository.save(user);
-        }
-        else {
-            throw new CustomException("No such user", HttpStatus.UNPROCESSABLE_ENTITY);
+    //  without a pending email there is nothing to confirm, the code only has to exist
+    //  returns the username, which is the key evicted from searchUser
+    @CacheEvict(cacheNames = "searchUser", key = "#result")
+    public String verifyEmail(String code){
+        String username = userRepository.findUsernameByVerificationCode(code)
+                .orElseThrow(() -> new CustomException("No such user", HttpStatus.UNPROCESSABLE_ENTITY));
+        try {
+            userRepository.confirmPendingEmailByVerificationCode(code);
+        } catch (DataIntegrityViolationException e) {
+            // another account took the email after it was requested here, the unique email indexes decide
+            throw new CustomException("The email is already in use by other users.", HttpStatus.UNPROCESSABLE_ENTITY);
         }
+        return username;
     }
 
+    @Transactional(readOnly = true)
     public File exportCSV(){
 
         File file = new File(env.getProperty("upload.path.csv") + "usersCSV.csv");
@@ -277,16 +347,11 @@ public class UserService {
             while ((line = csvReader.readNext()) != null) {
                 list.add(line);
             }
+            List<String> emails = new ArrayList<>();
             for (int i=1; i<list.size(); i++) {
-
-                if (userRepository.existsByEmailIgnoreCase(list.get(i)[0].toLowerCase())) {
-                    continue;
-                }
-
-                inviteService.inviteUser(list.get(i)[0],request);
-                countUsers++;
-
+                emails.add(list.get(i)[0]);
             }
+            countUsers = inviteService.inviteAll(emails, request);
         }
         catch (IOException e) {
             throw new CustomException("File read error", HttpStatus.UNPROCESSABLE_ENTITY);
@@ -302,13 +367,9 @@ public class UserService {
         return response;
     }
 
+    //  one update for a new account, verifying an enabled one again is a no-op
     public void verify(String code) {
-        if (userRepository.existsByVerificationCode(code)){
-            User user = userRepository.findByVerificationCode(code);
-            user.setEnabled(true);
-            userRepository.save(user);
-        }
-        else {
+        if (userRepository.enableByVerificationCode(code) == 0 && !userRepository.existsByVerificationCode(code)) {
             throw new CustomException("No such user", HttpStatus.UNPROCESSABLE_ENTITY);
         }
     }
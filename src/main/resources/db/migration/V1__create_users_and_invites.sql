@@ -0,0 +1,47 @@
+-- Schema as previously generated by Hibernate (ddl-auto), written for both H2 and PostgreSQL
+
+create table users (
+    id integer generated by default as identity,
+    username varchar(255) not null,
+    username_lower varchar(255) not null,
+    password varchar(255),
+    email varchar(255) not null,
+    email_lower varchar(255) not null,
+    update_email varchar(255),
+    first_name varchar(255) not null,
+    last_name varchar(255) not null,
+    birthday date not null,
+    registration_date date,
+    photos varchar(64),
+    verification_code varchar(255),
+    enabled boolean,
+    token_epoch integer default 0 not null,
+    constraint pk_users primary key (id),
+    constraint uk_users_username unique (username),
+    constraint uk_users_username_lower unique (username_lower),
+    constraint uk_users_email unique (email),
+    constraint uk_users_email_lower unique (email_lower)
+);
+
+create table users_roles (
+    users_id integer not null,
+    roles integer,
+    constraint fk_users_roles_users foreign key (users_id) references users (id)
+);
+
+create table invite (
+    id integer generated by default as identity,
+    email varchar(255) not null,
+    email_lower varchar(255) not null,
+    id_user integer not null,
+    date_sent_invite date,
+    constraint pk_invite primary key (id),
+    constraint uk_invite_email unique (email),
+    constraint uk_invite_email_lower unique (email_lower)
+);
+
+create table invite_status (
+    invite_id integer not null,
+    status integer,
+    constraint fk_invite_status_invite foreign key (invite_id) references invite (id)
+);
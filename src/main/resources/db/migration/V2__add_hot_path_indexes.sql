@@ -0,0 +1,9 @@
+-- verify and verifyEmail look users up by their code
+create index idx_users_verification_code on users (verification_code);
+
+-- invite list of a user, newest first
+create index idx_invite_id_user_date_sent on invite (id_user, date_sent_invite);
+
+-- element collections are loaded by owner id, the foreign keys alone are not indexed on PostgreSQL
+create index idx_users_roles_users_id on users_roles (users_id);
+create index idx_invite_status_invite_id on invite_status (invite_id);
@@ -0,0 +1,10 @@
+-- roles move from the users_roles element collection to a bitmask column, bit (1 << ordinal of Role) per role:
+-- ROLE_ADMIN = 1, ROLE_CLIENT = 2, see RolesConverter
+alter table users add column roles integer default 0 not null;
+
+update users set roles = (
+    select coalesce(sum(distinct case ur.roles when 0 then 1 when 1 then 2 else 0 end), 0)
+    from users_roles ur
+    where ur.users_id = users.id);
+
+drop table users_roles;
@@ -0,0 +1,14 @@
+-- an invite has a single status, moved from the invite_status element collection to a column (Status ordinal:
+-- PENDING = 0, CLOSED = 1), a closed entry wins if both were ever stored
+alter table invite add column status integer default 0 not null;
+
+update invite set status = coalesce((
+    select max(s.status)
+    from invite_status s
+    where s.invite_id = invite.id), 0);
+
+drop table invite_status;
+
+-- the invite list of a user is read in (date_sent_invite desc, status desc) order, straight from this index
+drop index idx_invite_id_user_date_sent;
+create index idx_invite_id_user_date_sent_status on invite (id_user, date_sent_invite, status);
@@ -1,9 +1,15 @@
 package com.softkit;
 
+import com.softkit.configuration.SqlStatementCountFilter;
+import com.softkit.model.User;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.client.TestRestTemplate;
 import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import static org.assertj.core.api.Assertions.assertThat;
 
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
 public class AbstractControllerTest {
@@ -16,4 +22,19 @@ public class AbstractControllerTest {
         return "http://localhost:" + port;
     }
 
+    //  signs in with TestUsers.PASSWORD and returns the token
+    protected String signin(User user) {
+        ResponseEntity<String> response = restTemplate.postForEntity(getBaseUrl() + "/users/signin?usernameOrEmail={username}&password={password}",
+                null, String.class, user.getUsername(), TestUsers.PASSWORD);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        return response.getBody();
+    }
+
+    //  SQL statements the request ran, needs app.sql.statement-count-header=true
+    protected static int statements(ResponseEntity<?> response) {
+        String count = response.getHeaders().getFirst(SqlStatementCountFilter.HEADER);
+        assertThat(count).as("statement count header").isNotNull();
+        return Integer.parseInt(count);
+    }
+
 }
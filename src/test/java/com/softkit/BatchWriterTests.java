@@ -0,0 +1,63 @@
+package com.softkit;
+
+import com.softkit.configuration.SqlStatementCounter;
+import com.softkit.model.Invite;
+import com.softkit.model.Status;
+import com.softkit.model.User;
+import com.softkit.repository.BatchWriter;
+import com.softkit.repository.InviteRepository;
+import com.softkit.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(classes = {StarterApplication.class})
+public class BatchWriterTests {
+
+    private static final int ROWS = 10_000;
+
+    @Autowired
+    private BatchWriter batchWriter;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private InviteRepository inviteRepository;
+
+    @Test
+    public void tenThousandInvitesTakeOneStatementPerBatch() {
+        User user = saveUser();
+        String prefix = UUID.randomUUID().toString().substring(0, 8);
+        List<Invite> invites = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++) {
+            invites.add(Invite.builder()
+                    .email(prefix + i + "@softkit.com")
+                    .idUser(user.getId())
+                    .dateSentInvite(Date.valueOf("2021-05-01"))
+                    .status(Status.PENDING)
+                    .build());
+        }
+        long before = inviteRepository.count();
+        SqlStatementCounter.reset();
+
+        assertThat(batchWriter.persistAll(invites)).isEqualTo(ROWS);
+
+//        one sequence call per 50 ids and one batched insert per 50 rows, instead of an insert per row
+        assertThat(SqlStatementCounter.count()).isLessThanOrEqualTo(2 * ROWS / 50 + 2);
+        assertThat(inviteRepository.count()).isEqualTo(before + ROWS);
+        assertThat(invites).allMatch(invite -> invite.getId() != null);
+    }
+
+    private User saveUser() {
+        return userRepository.save(TestUsers.user("batch").build());
+    }
+
+}
@@ -0,0 +1,88 @@
+package com.softkit;
+
+import com.softkit.exception.CustomException;
+import com.softkit.security.BoundedPasswordEncoder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class BoundedPasswordEncoderTests {
+
+    @Test
+    public void saturatedPoolRejectsImmediately() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(new BlockingEncoder(release), 1, 1, meterRegistry);
+        ExecutorService callers = Executors.newFixedThreadPool(2);
+        try {
+//            one hash running, one waiting in the queue
+            callers.submit(() -> encoder.encode("first"));
+            callers.submit(() -> encoder.encode("second"));
+            while (meterRegistry.get("password.hashing.queue.size").gauge().value() < 1) {
+                Thread.sleep(10);
+            }
+
+            assertThatThrownBy(() -> encoder.encode("third"))
+                    .isInstanceOf(CustomException.class)
+                    .extracting(e -> ((CustomException) e).getHttpStatus())
+                    .isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+            assertThat(meterRegistry.get("password.hashing.rejected").counter().count()).isEqualTo(1);
+
+            release.countDown();
+            callers.shutdown();
+            assertThat(callers.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+            assertThat(meterRegistry.get("password.hashing").tag("operation", "encode").timer().count()).isEqualTo(2);
+        } finally {
+            release.countDown();
+            callers.shutdownNow();
+            encoder.destroy();
+        }
+    }
+
+    @Test
+    public void resultsAndErrorsOfDelegateArePassedThrough() {
+        BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(new BlockingEncoder(new CountDownLatch(0)), 1, 1, new SimpleMeterRegistry());
+
+        assertThat(encoder.encode("secret")).isEqualTo("{hashed}secret");
+        assertThat(encoder.matches("secret", "{hashed}secret")).isTrue();
+        assertThatThrownBy(() -> encoder.matches(null, "{hashed}secret")).isInstanceOf(IllegalArgumentException.class);
+
+        encoder.destroy();
+    }
+
+    private static class BlockingEncoder implements PasswordEncoder {
+
+        private final CountDownLatch release;
+
+        private BlockingEncoder(CountDownLatch release) {
+            this.release = release;
+        }
+
+        @Override
+        public String encode(CharSequence rawPassword) {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "{hashed}" + rawPassword;
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            if (rawPassword == null) {
+                throw new IllegalArgumentException("rawPassword cannot be null");
+            }
+            return encodedPassword.equals(encode(rawPassword));
+        }
+    }
+}
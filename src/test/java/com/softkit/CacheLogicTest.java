@@ -56,7 +56,7 @@ public class CacheLogicTest  extends AbstractControllerTest{
 
         User userForSignup = userRepository.save(userMapper.mapUserDataToUser(getValidUserForSignup()));
         for (int i = 0; i < 10; i++) {
-            User user = userService.search(userForSignup.getUsername());
+            UserResponseDTO user = userService.search(userForSignup.getUsername());
         }
        // verify(userService).search(userForSignup.getUsername());
 
@@ -111,7 +111,7 @@ public class CacheLogicTest  extends AbstractControllerTest{
 
         int count=0;
         for (int i = 0; i < 10; i++) {
-            User user = userService.search(userAdmin.getUsername());
+            UserResponseDTO user = userService.search(userAdmin.getUsername());
             count++;
         }
         System.out.println("END_______________________________________");
@@ -135,7 +135,7 @@ public class CacheLogicTest  extends AbstractControllerTest{
 
         count=0;
         for (int i = 0; i < 10; i++) {
-            User user = userService.search(userAdmin.getUsername());
+            UserResponseDTO user = userService.search(userAdmin.getUsername());
             count++;
         }
 
@@ -0,0 +1,72 @@
+package com.softkit;
+
+import com.google.common.collect.Lists;
+import com.softkit.configuration.CachedUserCodec;
+import com.softkit.dto.UserResponseDTO;
+import com.softkit.model.Role;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.sql.Date;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class CachedUserCodecTests {
+
+    private final CachedUserCodec codec = new CachedUserCodec();
+
+    @Test
+    public void userRoundTrips() {
+        UserResponseDTO user = user();
+
+        UserResponseDTO decoded = codec.deserialize(codec.serialize(user));
+
+        assertThat(decoded).isEqualTo(user);
+        assertThat(decoded.getBirthday()).isInstanceOf(Date.class);
+    }
+
+    @Test
+    public void missingFieldsStayMissing() {
+        UserResponseDTO user = new UserResponseDTO(7, "ürsula", null, "Ürsula", "Ünal", Date.valueOf("1961-02-03"),
+                null, null, Collections.emptyList());
+
+        assertThat(codec.deserialize(codec.serialize(user))).isEqualTo(user);
+    }
+
+    @Test
+    public void entryIsAFractionOfJdkSerialization() {
+        int codecBytes = codec.serialize(user()).length;
+        int jdkBytes = new JdkSerializationRedisSerializer().serialize(user()).length;
+
+        assertThat(codecBytes).isLessThan(100);
+        assertThat(codecBytes * 5).isLessThan(jdkBytes);
+    }
+
+    @Test
+    public void otherVersionsReadAsMiss() {
+        byte[] bytes = codec.serialize(user());
+        bytes[0]++;
+
+        assertThat(codec.deserialize(bytes)).isNull();
+        assertThat(codec.deserialize(null)).isNull();
+    }
+
+    @Test
+    public void truncatedEntryIsRejected() {
+        byte[] bytes = codec.serialize(user());
+
+        assertThatThrownBy(() -> codec.deserialize(Arrays.copyOf(bytes, bytes.length / 2)))
+                .isInstanceOf(SerializationException.class);
+    }
+
+    private static UserResponseDTO user() {
+        return new UserResponseDTO(123456, "heisenberg", "heisenberg@softkit.com", "Walter", "White",
+                Date.valueOf("1958-09-07"), Date.valueOf("2021-04-01"), "avatar.jpg",
+                Lists.newArrayList(Role.ROLE_ADMIN, Role.ROLE_CLIENT));
+    }
+
+}
@@ -0,0 +1,87 @@
+package com.softkit;
+
+import com.softkit.configuration.ConnectionHoldTimer;
+import com.softkit.model.User;
+import com.softkit.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.autoconfigure.metrics.MetricsProperties;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.util.concurrent.TimeUnit;
+
+import static com.softkit.TestUsers.PASSWORD;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ConnectionPoolMetricsTests extends AbstractControllerTest {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private MetricsProperties metricsProperties;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Test
+    public void poolIsConfiguredAndExported() {
+        assertThat(meterRegistry.get("hikaricp.connections.max").tag("pool", "primary").gauge().value()).isEqualTo(50);
+        assertThat(meterRegistry.get("hikaricp.connections.active").tag("pool", "primary").gauge()).isNotNull();
+        assertThat(meterRegistry.get("hikaricp.connections.idle").tag("pool", "primary").gauge()).isNotNull();
+        assertThat(meterRegistry.get("hikaricp.connections.pending").tag("pool", "primary").gauge()).isNotNull();
+
+        Timer acquire = meterRegistry.get("hikaricp.connections.acquire").tag("pool", "primary").timer();
+        assertThat(acquire.count()).isPositive();
+        assertThat(meterRegistry.get("hikaricp.connections.usage").tag("pool", "primary").timer().count()).isPositive();
+//        the in-memory registry of the tests keeps no buckets, so only the configuration is checked
+        assertThat(metricsProperties.getDistribution().getPercentilesHistogram())
+                .containsEntry("hikaricp.connections.acquire", true)
+                .containsEntry("hikaricp.connections.usage", true)
+                .containsEntry("http.server.requests.connection.hold", true);
+    }
+
+    @Test
+    public void holdTimeIsRecordedPerEndpoint() throws InterruptedException {
+        User user = saveUser();
+
+        signin(user);
+
+//        the filter records after the response is sent
+        Timer hold = null;
+        for (int i = 0; i < 50 && hold == null; i++) {
+            hold = meterRegistry.find("http.server.requests.connection.hold").tag("uri", "/users/signin").timer();
+            Thread.sleep(20);
+        }
+        assertThat(hold).isNotNull();
+        assertThat(hold.count()).isPositive();
+        assertThat(hold.totalTime(TimeUnit.NANOSECONDS)).isPositive();
+    }
+
+    @Test
+    public void holdTimeRunsFromCheckoutToClose() throws Exception {
+        ConnectionHoldTimer.reset();
+
+        try (Connection connection = dataSource.getConnection()) {
+            connection.isValid(1);
+            Thread.sleep(20);
+        }
+
+        assertThat(ConnectionHoldTimer.heldNanos()).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(20));
+    }
+
+    private User saveUser() {
+        return userRepository.save(TestUsers.user("pool").password(passwordEncoder.encode(PASSWORD)).build());
+    }
+
+}
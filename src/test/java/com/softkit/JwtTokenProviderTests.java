@@ -0,0 +1,92 @@
+package com.softkit;
+
+import com.google.common.collect.Lists;
+import com.softkit.exception.CustomException;
+import com.softkit.model.Role;
+import com.softkit.model.User;
+import com.softkit.repository.UserRepository;
+import com.softkit.security.JwtToken;
+import com.softkit.security.JwtTokenProvider;
+import com.softkit.security.TokenEpochService;
+import com.softkit.service.UserService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(classes = {StarterApplication.class}, properties = "security.jwt.token.claims-only=true")
+public class JwtTokenProviderTests {
+
+    @Autowired
+    private JwtTokenProvider jwtTokenProvider;
+
+    @Autowired
+    private TokenEpochService tokenEpochService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserService userService;
+
+    @Test
+    public void authenticationIsBuiltFromClaims() {
+        User user = saveUser();
+        String token = jwtTokenProvider.createToken(user);
+
+        Authentication authentication = jwtTokenProvider.getAuthentication(token);
+
+        assertThat(authentication.getName()).isEqualTo(user.getUsername());
+        assertThat(authentication.getAuthorities().stream().map(GrantedAuthority::getAuthority).collect(Collectors.toList()))
+                .containsExactly("ROLE_ADMIN", "ROLE_CLIENT");
+    }
+
+    @Test
+    public void revokedTokensAreRejected() {
+        User user = saveUser();
+        String token = jwtTokenProvider.createToken(user);
+        jwtTokenProvider.getAuthentication(token);
+
+        tokenEpochService.revokeAll(user.getUsername());
+
+        assertThatThrownBy(() -> jwtTokenProvider.getAuthentication(token)).isInstanceOf(CustomException.class);
+        assertThat(jwtTokenProvider.getAuthentication(jwtTokenProvider.createToken(userRepository.findByUsername(user.getUsername()))))
+                .isNotNull();
+    }
+
+    @Test
+    public void tokensOfDeletedUserAreRejected() {
+        User user = saveUser();
+        String token = jwtTokenProvider.createToken(user);
+        jwtTokenProvider.getAuthentication(token);
+
+        userService.deleteUsername(user.getUsername());
+
+        assertThatThrownBy(() -> jwtTokenProvider.getAuthentication(token)).isInstanceOf(CustomException.class);
+    }
+
+    @Test
+    public void parsedTokenIsSharedThroughTheRequest() {
+        User user = saveUser();
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Authorization", "Bearer " + jwtTokenProvider.createToken(user));
+
+        JwtToken jwtToken = jwtTokenProvider.resolveParsedToken(request);
+
+        assertThat(jwtToken.getSubject()).isEqualTo(user.getUsername());
+        assertThat(jwtToken.getUserId()).isEqualTo(user.getId());
+        assertThat(jwtToken.getExpiration()).isInTheFuture();
+        assertThat(jwtTokenProvider.resolveParsedToken(request)).isSameAs(jwtToken);
+    }
+
+    private User saveUser() {
+        return userRepository.save(TestUsers.user("claims").roles(Lists.newArrayList(Role.ROLE_ADMIN, Role.ROLE_CLIENT)).build());
+    }
+}
@@ -0,0 +1,56 @@
+package com.softkit;
+
+import com.softkit.model.User;
+import com.softkit.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.TestPropertySource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Behind a load balancer every request comes from the proxy, the client bucket must follow X-Forwarded-For.
+ * The account bucket follows the user, whether it is addressed by username or by email.
+ */
+@TestPropertySource(properties = {
+        "server.forward-headers-strategy=native",
+        "security.throttle.client.capacity=1",
+        "security.throttle.client.refill-per-minute=1",
+        "security.throttle.account.capacity=2",
+        "security.throttle.account.refill-per-minute=1"})
+public class LoginThrottleEndpointTests extends AbstractControllerTest {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    public void forwardedClientsGetSeparateBuckets() {
+        assertThat(signin("203.0.113.1", "first")).isNotEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+        assertThat(signin("203.0.113.1", "second")).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+
+        assertThat(signin("203.0.113.2", "third")).isNotEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+    }
+
+    @Test
+    public void usernameAndEmailShareTheAccountBucket() {
+        User user = userRepository.save(TestUsers.user("throttle").build());
+
+        assertThat(signin("198.51.100.1", user.getUsername())).isNotEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+        assertThat(signin("198.51.100.2", user.getEmail())).isNotEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+
+        assertThat(signin("198.51.100.3", user.getEmail())).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+        assertThat(signin("198.51.100.4", user.getUsername())).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+    }
+
+    private HttpStatus signin(String forwardedFor, String usernameOrEmail) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("X-Forwarded-For", forwardedFor);
+        return restTemplate.exchange(getBaseUrl() + "/users/signin?usernameOrEmail={usernameOrEmail}&password=password",
+                HttpMethod.POST, new HttpEntity<>(headers), String.class, usernameOrEmail).getStatusCode();
+    }
+
+}
@@ -0,0 +1,70 @@
+package com.softkit;
+
+import com.softkit.exception.TooManyRequestsException;
+import com.softkit.security.LocalRateLimiter;
+import com.softkit.security.LoginThrottle;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+public class LoginThrottleTests {
+
+    @Test
+    public void bucketAllowsCapacityThenReportsWait() {
+        LocalRateLimiter limiter = new LocalRateLimiter(1000);
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(limiter.tryAcquire("key", 3, 1)).isZero();
+        }
+        assertThat(limiter.tryAcquire("key", 3, 1)).isBetween(1L, 1000L);
+        assertThat(limiter.tryAcquire("other", 3, 1)).isZero();
+    }
+
+    @Test
+    public void bucketCountIsCapped() {
+        LocalRateLimiter limiter = new LocalRateLimiter(640);
+
+        for (int i = 0; i < 10_000; i++) {
+            limiter.tryAcquire("client:" + i, 5, 1);
+        }
+        assertThat(limiter.size()).isLessThanOrEqualTo(640);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void accountIsThrottledAcrossClients() {
+        LoginThrottle throttle = new LoginThrottle(mock(ObjectProvider.class), "local", 1000, 100, 1, 2, 1);
+
+        throttle.acquire(request("10.0.0.1"), "Softkit");
+        throttle.acquire(request("10.0.0.2"), "softkit");
+
+        assertThatThrownBy(() -> throttle.acquire(request("10.0.0.3"), "SOFTKIT"))
+                .isInstanceOf(TooManyRequestsException.class)
+                .satisfies(e -> assertThat(((TooManyRequestsException) e).getRetryAfterSeconds()).isPositive());
+        throttle.acquire(request("10.0.0.3"), "another");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void clientIsThrottledAcrossAccounts() {
+        LoginThrottle throttle = new LoginThrottle(mock(ObjectProvider.class), "local", 1000, 2, 1, 100, 1);
+
+        throttle.acquire(request("10.0.0.1"), "first");
+        throttle.acquire(request("10.0.0.1"), "second");
+
+        assertThatThrownBy(() -> throttle.acquire(request("10.0.0.1"), "third"))
+                .isInstanceOf(TooManyRequestsException.class);
+        throttle.acquire(request("10.0.0.2"), "third");
+    }
+
+    private static MockHttpServletRequest request(String remoteAddr) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setRemoteAddr(remoteAddr);
+        return request;
+    }
+
+}
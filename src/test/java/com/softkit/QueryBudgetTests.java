@@ -0,0 +1,207 @@
+package com.softkit;
+
+import com.google.common.collect.Lists;
+import com.softkit.model.Invite;
+import com.softkit.model.Role;
+import com.softkit.model.Status;
+import com.softkit.model.User;
+import com.softkit.repository.InviteRepository;
+import com.softkit.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.net.URI;
+import java.sql.Date;
+import java.util.UUID;
+
+import static com.softkit.TestUsers.PASSWORD;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Number of SQL statements per endpoint, read from the X-Sql-Statement-Count header.
+ * A failing budget means a change added queries to the request, check it is intended before raising the number.
+ * The in-memory cache keeps the numbers independent of a running Redis.
+ */
+@TestPropertySource(properties = "spring.cache.type=simple")
+public class QueryBudgetTests extends AbstractControllerTest {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private InviteRepository inviteRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Test
+    public void signinBudget() {
+        User user = saveUser(Role.ROLE_CLIENT);
+
+        ResponseEntity<String> response = exchange(HttpMethod.POST, uri("/users/signin")
+                .queryParam("usernameOrEmail", user.getUsername())
+                .queryParam("password", PASSWORD), null);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(statements(response)).isLessThanOrEqualTo(1);
+    }
+
+    @Test
+    public void whoamiAndRefreshBudget() {
+        String token = signin(saveUser(Role.ROLE_CLIENT));
+        // the first request of a user also loads its token stamp
+        exchange(HttpMethod.GET, uri("/users/me"), token);
+
+        ResponseEntity<String> whoami = exchange(HttpMethod.GET, uri("/users/me"), token);
+        ResponseEntity<String> refresh = exchange(HttpMethod.POST, uri("/users/refresh"), token);
+
+        assertThat(whoami.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(whoami.getBody()).contains("\"roles\":[\"ROLE_CLIENT\"]").doesNotContain("password");
+        assertThat(statements(whoami)).isLessThanOrEqualTo(2);
+        assertThat(refresh.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(statements(refresh)).isLessThanOrEqualTo(2);
+    }
+
+    @Test
+    public void searchAndAdminUpdateBudget() {
+        String token = signin(saveUser(Role.ROLE_ADMIN));
+        User client = saveUser(Role.ROLE_CLIENT);
+        exchange(HttpMethod.GET, uri("/users/me"), token);
+
+        ResponseEntity<String> search = exchange(HttpMethod.GET, uri("/users/search")
+                .queryParam("username", client.getUsername()), token);
+        ResponseEntity<String> update = exchange(HttpMethod.PUT, uri("/users/admin/update")
+                .queryParam("username", client.getUsername())
+                .queryParam("firstName", "first")
+                .queryParam("lastName", "last"), token);
+
+        assertThat(search.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(statements(search)).isLessThanOrEqualTo(2);
+        assertThat(update.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(statements(update)).isLessThanOrEqualTo(2);
+    }
+
+    @Test
+    public void profileUpdateBudget() {
+        User user = saveUser(Role.ROLE_CLIENT);
+        user.setVerificationCode(UUID.randomUUID().toString());
+        userRepository.save(user);
+        String token = signin(user);
+        exchange(HttpMethod.GET, uri("/users/me"), token);
+        String email = "New" + user.getEmail();
+
+        ResponseEntity<String> update = exchange(HttpMethod.PUT, uri("/users/update")
+                .queryParam("firstName", "first")
+                .queryParam("lastName", "last"), token);
+        ResponseEntity<String> updateEmail = exchange(HttpMethod.POST, uri("/users/update/email")
+                .queryParam("email", email), token);
+        ResponseEntity<String> verifyEmail = exchange(HttpMethod.GET, uri("/users/verify/email")
+                .queryParam("code", user.getVerificationCode()), null);
+
+        assertThat(update.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(statements(update)).isLessThanOrEqualTo(2);
+        assertThat(updateEmail.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(statements(updateEmail)).isLessThanOrEqualTo(4);
+        assertThat(verifyEmail.getStatusCode()).isEqualTo(HttpStatus.OK);
+        // the username is selected first, it is the key evicted from the search cache
+        assertThat(statements(verifyEmail)).isLessThanOrEqualTo(2);
+        User updated = userRepository.findByUsername(user.getUsername());
+        assertThat(updated.getFirstName()).isEqualTo("first");
+        assertThat(updated.getEmail()).isEqualTo(email);
+        assertThat(updated.getEmailLower()).isEqualTo(email.toLowerCase());
+        assertThat(updated.getUpdateEmail()).isNull();
+    }
+
+    @Test
+    public void deleteBudget() {
+        String token = signin(saveUser(Role.ROLE_ADMIN));
+        User client = saveUser(Role.ROLE_CLIENT);
+        exchange(HttpMethod.GET, uri("/users/me"), token);
+
+        ResponseEntity<String> delete = exchange(HttpMethod.DELETE, uri("/users/delete")
+                .queryParam("username", client.getUsername()), token);
+        ResponseEntity<String> missing = exchange(HttpMethod.DELETE, uri("/users/delete")
+                .queryParam("username", client.getUsername()), token);
+
+        assertThat(delete.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(statements(delete)).isLessThanOrEqualTo(2);
+        assertThat(missing.getStatusCode()).isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY);
+        assertThat(statements(missing)).isLessThanOrEqualTo(2);
+        assertThat(userRepository.findOneByUsername(client.getUsername())).isEmpty();
+    }
+
+    @Test
+    public void verifyBudget() {
+        User user = saveUser(Role.ROLE_CLIENT);
+        user.setEnabled(false);
+        user.setVerificationCode(UUID.randomUUID().toString());
+        userRepository.save(user);
+
+        ResponseEntity<String> verify = exchange(HttpMethod.GET, uri("/users/verify")
+                .queryParam("code", user.getVerificationCode()), null);
+        ResponseEntity<String> again = exchange(HttpMethod.GET, uri("/users/verify")
+                .queryParam("code", user.getVerificationCode()), null);
+        ResponseEntity<String> unknown = exchange(HttpMethod.GET, uri("/users/verify")
+                .queryParam("code", "unknown"), null);
+
+        assertThat(verify.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(statements(verify)).isLessThanOrEqualTo(1);
+        // an update that matches no row, then a check that the code exists
+        assertThat(again.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(statements(again)).isLessThanOrEqualTo(2);
+        assertThat(unknown.getStatusCode()).isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY);
+        assertThat(statements(unknown)).isLessThanOrEqualTo(2);
+        assertThat(userRepository.findByUsername(user.getUsername()).isEnabled()).isTrue();
+    }
+
+    @Test
+    public void inviteListBudget() {
+        User user = saveUser(Role.ROLE_CLIENT);
+        String token = signin(user);
+        exchange(HttpMethod.GET, uri("/users/me"), token);
+        for (Status status : Status.values()) {
+            inviteRepository.save(Invite.builder()
+                    .email(status + user.getEmail())
+                    .idUser(user.getId())
+                    .dateSentInvite(Date.valueOf("2021-05-01"))
+                    .status(status)
+                    .build());
+        }
+
+        ResponseEntity<String> invites = exchange(HttpMethod.GET, uri("/invite/users"), token);
+
+        assertThat(invites.getStatusCode()).isEqualTo(HttpStatus.OK);
+        // the status is still serialized as a list, CLOSED first
+        assertThat(invites.getBody()).containsSubsequence("\"status\":[\"CLOSED\"]", "\"status\":[\"PENDING\"]");
+        assertThat(statements(invites)).isLessThanOrEqualTo(2);
+    }
+
+    private UriComponentsBuilder uri(String path) {
+        return UriComponentsBuilder.fromHttpUrl(getBaseUrl() + path);
+    }
+
+    private ResponseEntity<String> exchange(HttpMethod method, UriComponentsBuilder uri, String token) {
+        HttpHeaders headers = new HttpHeaders();
+        if (token != null) {
+            headers.setBearerAuth(token);
+        }
+        URI url = uri.build().encode().toUri();
+        return restTemplate.exchange(url, method, new HttpEntity<>(headers), String.class);
+    }
+
+    private User saveUser(Role role) {
+        return userRepository.save(TestUsers.user("budget")
+                .password(passwordEncoder.encode(PASSWORD))
+                .roles(Lists.newArrayList(role))
+                .build());
+    }
+
+}
@@ -0,0 +1,154 @@
+package com.softkit;
+
+import com.softkit.cluster.ClusterEventBus;
+import com.softkit.configuration.ReadYourWritesTracker;
+import com.softkit.dto.UserResponseDTO;
+import com.softkit.exception.CustomException;
+import com.softkit.model.RolesConverter;
+import com.softkit.model.User;
+import com.softkit.repository.UserRepository;
+import com.softkit.service.UserService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * A second in-memory H2 database stands in for the replica. It gets the schema but no replication,
+ * so where a read went is told by the data it returns.
+ */
+@SpringBootTest(classes = {StarterApplication.class})
+@TestPropertySource(properties = {
+        "app.datasource.replica.urls=" + ReplicaRoutingTests.REPLICA_URL,
+        "spring.cache.type=simple"})
+public class ReplicaRoutingTests {
+
+    static final String REPLICA_URL = "jdbc:h2:mem:replica_db;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE";
+
+    private static final JdbcTemplate replica = new JdbcTemplate(new DriverManagerDataSource(REPLICA_URL, "postgres", "1qaz2wsXX"));
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private ReadYourWritesTracker readYourWritesTracker;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeAll
+    public static void migrateReplica() {
+        Flyway.configure()
+                .dataSource(replica.getDataSource())
+                .locations("classpath:db/migration", "classpath:db/vendor/h2")
+                .load()
+                .migrate();
+    }
+
+    @AfterEach
+    public void clearAuthentication() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    public void readOnlyTransactionsGoToTheReplica() {
+        User user = saveUser();
+
+        assertThatThrownBy(() -> userService.search(user.getUsername())).isInstanceOf(CustomException.class);
+
+        replicate(user, "replica");
+        assertThat(userService.search(user.getUsername()).getFirstName()).isEqualTo("replica");
+        // each pool gets the spring.datasource.hikari settings and its own metrics
+        assertThat(meterRegistry.get("hikaricp.connections.max").tag("pool", "replica-0").gauge().value()).isEqualTo(50);
+        assertThat(meterRegistry.get("hikaricp.connections.usage").tag("pool", "replica-0").timer().count()).isPositive();
+    }
+
+    @Test
+    public void writesAndFreshnessCriticalReadsGoToThePrimary() {
+        User user = saveUser();
+
+        assertThat(userRepository.findOneByUsername(user.getUsername())).isPresent();
+        assertThat(userRepository.findTokenStampByUsername(user.getUsername())).isPresent();
+        assertThat(userRepository.findUsernameByVerificationCode(user.getVerificationCode())).isPresent();
+        assertThat(userRepository.findAllByUsernameOrEmail(user.getUsername())).hasSize(1);
+    }
+
+    @Test
+    public void ownWritesAreReadFromThePrimaryForTheWindow() {
+        User user = saveUser();
+        replicate(user, "replica");
+        User other = saveUser();
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(user.getUsername(), "", Collections.emptyList()));
+
+        readYourWritesTracker.recordWrite(user.getUsername());
+
+        assertThat(readOnly(user.getUsername()).getFirstName()).isEqualTo("soft");
+        // only the requests of the user who wrote are pinned
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(other.getUsername(), "", Collections.emptyList()));
+        assertThat(readOnly(user.getUsername()).getFirstName()).isEqualTo("replica");
+    }
+
+    @Test
+    public void writerIsPinnedWithoutWaitingForTheBroadcast() {
+        ClusterEventBus failingBus = new ClusterEventBus() {
+            @Override
+            public void publish(String channel, String message) {
+                throw new IllegalStateException("bus down");
+            }
+
+            @Override
+            public void subscribe(String channel, Consumer<String> listener) {
+            }
+        };
+        ReadYourWritesTracker tracker = new ReadYourWritesTracker(failingBus, Duration.ofSeconds(5));
+
+        tracker.recordWrite("writer");
+
+        assertThat(tracker.isPinned("writer")).isTrue();
+        assertThat(tracker.isPinned("someone-else")).isFalse();
+    }
+
+    private UserResponseDTO readOnly(String username) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(true);
+        return transaction.execute(status -> userRepository.findResponseByUsername(username).orElseThrow());
+    }
+
+    private void replicate(User user, String firstName) {
+        replica.update("insert into users (id, username, username_lower, password, email, email_lower, first_name, " +
+                        "last_name, birthday, enabled, roles) values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)",
+                user.getId(), user.getUsername(), user.getUsernameLower(), user.getPassword(), user.getEmail(),
+                user.getEmailLower(), firstName, user.getLastName(), user.getBirthday(), user.isEnabled(),
+                RolesConverter.toMask(user.getRoles()));
+    }
+
+    private User saveUser() {
+        return userRepository.save(TestUsers.user("replica").build());
+    }
+
+}
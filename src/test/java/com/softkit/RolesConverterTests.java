@@ -0,0 +1,38 @@
+package com.softkit;
+
+import com.google.common.collect.Lists;
+import com.softkit.model.Role;
+import com.softkit.model.RolesConverter;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RolesConverterTests {
+
+    private final RolesConverter converter = new RolesConverter();
+
+    @Test
+    public void rolesRoundTrip() {
+        Integer mask = converter.convertToDatabaseColumn(Lists.newArrayList(Role.ROLE_CLIENT, Role.ROLE_ADMIN, Role.ROLE_CLIENT));
+
+        assertThat(mask).isEqualTo(3);
+        assertThat(converter.convertToEntityAttribute(mask)).containsExactly(Role.ROLE_ADMIN, Role.ROLE_CLIENT);
+    }
+
+    @Test
+    public void storedBitsAreStable() {
+        // values already in the database, changing them needs a migration
+        assertThat(converter.convertToDatabaseColumn(Collections.singletonList(Role.ROLE_ADMIN))).isEqualTo(1);
+        assertThat(converter.convertToDatabaseColumn(Collections.singletonList(Role.ROLE_CLIENT))).isEqualTo(2);
+    }
+
+    @Test
+    public void noRolesIsZero() {
+        assertThat(converter.convertToDatabaseColumn(null)).isZero();
+        assertThat(converter.convertToEntityAttribute(0)).isEmpty();
+        assertThat(converter.convertToEntityAttribute(null)).isEmpty();
+    }
+
+}
@@ -0,0 +1,51 @@
+package com.softkit;
+
+import com.softkit.configuration.SchemaIndexVerifier;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(classes = {StarterApplication.class})
+public class SchemaMigrationTests {
+
+    @Autowired
+    private Flyway flyway;
+
+    @Autowired
+    private SchemaIndexVerifier schemaIndexVerifier;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void migrationsAreApplied() {
+        assertThat(flyway.info().pending()).isEmpty();
+        assertThat(flyway.info().current()).isNotNull();
+    }
+
+    @Test
+    public void expectedIndexesExist() {
+        assertThat(schemaIndexVerifier.findMissing(SchemaIndexVerifier.EXPECTED_INDEXES)).isEmpty();
+    }
+
+    @Test
+    public void missingIndexIsReported() {
+        assertThat(schemaIndexVerifier.findMissing(Collections.singletonList(SchemaIndexVerifier.ExpectedIndex.of("users", "photos"))))
+                .containsExactly("users[photos]");
+    }
+
+    @Test
+    public void idsComeOnlyFromTheSequences() {
+        assertThatThrownBy(() -> jdbcTemplate.update("insert into invite (email, email_lower, id_user) values ('a@softkit.com', 'a@softkit.com', 1)"))
+                .isInstanceOf(DataIntegrityViolationException.class);
+    }
+
+}
@@ -0,0 +1,163 @@
+package com.softkit;
+
+import com.softkit.exception.CustomException;
+import com.softkit.model.User;
+import com.softkit.repository.UserRepository;
+import com.softkit.security.JwtTokenProvider;
+import com.softkit.security.ProjectUserDetailsService;
+import com.softkit.service.UserService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.test.context.TestPropertySource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Every path that changes what search returns must drop the entry of that user, and only that one.
+ */
+@SpringBootTest(classes = {StarterApplication.class})
+@TestPropertySource(properties = "spring.cache.type=simple")
+public class SearchCacheConsistencyTests {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JwtTokenProvider jwtTokenProvider;
+
+    @Autowired
+    private ProjectUserDetailsService projectUserDetailsService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    public void adminUpdateEvictsOnlyThatUser() {
+        User changed = saveCachedUser();
+        User untouched = saveCachedUser();
+
+        userService.adminUpdateData(changed.getUsername(), "first", "last");
+
+        assertThat(searchUser().get(changed.getUsername())).isNull();
+        assertThat(searchUser().get(untouched.getUsername())).isNotNull();
+        assertThat(userService.search(changed.getUsername()).getFirstName()).isEqualTo("first");
+    }
+
+    @Test
+    public void ownUpdateEvictsTheUserOfTheToken() {
+        User changed = saveCachedUser();
+        User untouched = saveCachedUser();
+
+        userService.updateData("first", "last", request(changed));
+
+        assertThat(searchUser().get(changed.getUsername())).isNull();
+        assertThat(searchUser().get(untouched.getUsername())).isNotNull();
+        assertThat(userService.search(changed.getUsername()).getLastName()).isEqualTo("last");
+    }
+
+    @Test
+    public void emailChangeIsVisibleOnceVerified() {
+        User changed = saveCachedUser();
+        User untouched = saveCachedUser();
+        String email = "new" + changed.getEmail();
+
+        userService.updateEmail(email, request(changed));
+        // still pending, search keeps returning the current email
+        assertThat(userService.search(changed.getUsername()).getEmail()).isEqualTo(changed.getEmail());
+
+        userService.verifyEmail(changed.getVerificationCode());
+
+        assertThat(searchUser().get(untouched.getUsername())).isNotNull();
+        assertThat(userService.search(changed.getUsername()).getEmail()).isEqualTo(email);
+    }
+
+    @Test
+    public void emailTakenMeanwhileIsRejectedOnVerification() {
+        User first = saveCachedUser();
+        User second = saveCachedUser();
+        String email = "taken" + first.getEmail();
+        userService.updateEmail(email, request(first));
+        userService.updateEmail(email, request(second));
+        userService.verifyEmail(first.getVerificationCode());
+
+        assertThatThrownBy(() -> userService.verifyEmail(second.getVerificationCode()))
+                .isInstanceOf(CustomException.class)
+                .satisfies(e -> assertThat(((CustomException) e).getHttpStatus()).isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY));
+        assertThat(userService.search(second.getUsername()).getEmail()).isEqualTo(second.getEmail());
+    }
+
+    @Test
+    public void deletedUserIsNoLongerFound() {
+        User deleted = saveCachedUser();
+        User untouched = saveCachedUser();
+
+        userService.deleteUsername(deleted.getUsername());
+
+        assertThat(searchUser().get(untouched.getUsername())).isNotNull();
+        assertThatThrownBy(() -> userService.search(deleted.getUsername())).isInstanceOf(CustomException.class);
+    }
+
+    @Test
+    public void userDetailsAreCachedUntilTheUserIsDeleted() {
+        User user = saveCachedUser();
+        UserDetails details = projectUserDetailsService.loadUserByUsername(user.getUsername());
+
+        assertThat(projectUserDetailsService.loadUserByUsername(user.getUsername())).isSameAs(details);
+
+        userService.deleteUsername(user.getUsername());
+
+        assertThat(cacheManager.getCache("userDetails").get(user.getUsername())).isNull();
+        assertThatThrownBy(() -> projectUserDetailsService.loadUserByUsername(user.getUsername()))
+                .isInstanceOf(UsernameNotFoundException.class);
+    }
+
+    @Test
+    public void hitsAndMissesAreCounted() {
+        double hits = gets("hit");
+        double misses = gets("miss");
+        User user = saveCachedUser();
+
+        for (int i = 0; i < 9; i++) {
+            userService.search(user.getUsername());
+        }
+
+        assertThat(gets("miss") - misses).isEqualTo(1);
+        assertThat(gets("hit") - hits).isEqualTo(9);
+    }
+
+    private double gets(String result) {
+        return meterRegistry.get("cache.gets").tag("cache", "searchUser").tag("result", result).counter().count();
+    }
+
+    private Cache searchUser() {
+        return cacheManager.getCache("searchUser");
+    }
+
+    private MockHttpServletRequest request(User user) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Authorization", "Bearer " + jwtTokenProvider.createToken(user));
+        return request;
+    }
+
+    private User saveCachedUser() {
+        User user = userRepository.save(TestUsers.user("cached").build());
+        userService.search(user.getUsername());
+        return user;
+    }
+
+}
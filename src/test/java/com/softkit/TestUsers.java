@@ -0,0 +1,36 @@
+package com.softkit;
+
+import com.google.common.collect.Lists;
+import com.softkit.model.Role;
+import com.softkit.model.User;
+
+import java.sql.Date;
+import java.util.UUID;
+
+/**
+ * Users the tests save straight through the repository, each with its own username and email.
+ */
+public final class TestUsers {
+
+    //  passes the password rules of the HTTP layer, for users that sign in through it
+    public static final String PASSWORD = "HeisenbuG1!";
+
+    private TestUsers() {
+    }
+
+    //  an enabled client named prefix + random suffix, override whatever the test needs before build()
+    public static User.UserBuilder user(String prefix) {
+        String username = prefix + UUID.randomUUID().toString().substring(0, 8);
+        return User.builder()
+                .username(username)
+                .password("password")
+                .email(username + "@softkit.com")
+                .firstName("soft")
+                .lastName("kit")
+                .birthday(Date.valueOf("2003-01-11"))
+                .roles(Lists.newArrayList(Role.ROLE_CLIENT))
+                .verificationCode(UUID.randomUUID().toString())
+                .enabled(true);
+    }
+
+}
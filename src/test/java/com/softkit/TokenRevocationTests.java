@@ -0,0 +1,87 @@
+package com.softkit;
+
+import com.softkit.exception.CustomException;
+import com.softkit.model.User;
+import com.softkit.repository.UserRepository;
+import com.softkit.security.JwtToken;
+import com.softkit.security.JwtTokenProvider;
+import com.softkit.security.TokenRevocationService;
+import com.softkit.service.UserService;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.util.Date;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(classes = {StarterApplication.class})
+public class TokenRevocationTests {
+
+    @Autowired
+    private JwtTokenProvider jwtTokenProvider;
+
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    public void logoutRevokesOnlyTheCurrentToken() {
+        User user = saveUser();
+        String loggedOut = jwtTokenProvider.createToken(user);
+        String other = jwtTokenProvider.createToken(user);
+
+        userService.logout(requestWith(loggedOut));
+
+        assertThatThrownBy(() -> jwtTokenProvider.getAuthentication(loggedOut)).isInstanceOf(CustomException.class);
+        assertThat(jwtTokenProvider.getAuthentication(other).getName()).isEqualTo(user.getUsername());
+    }
+
+    @Test
+    public void adminRevokeRejectsEveryTokenOfTheUser() {
+        User user = saveUser();
+        String first = jwtTokenProvider.createToken(user);
+        String second = jwtTokenProvider.createToken(user);
+        jwtTokenProvider.getAuthentication(first);
+
+        userService.revokeTokens(user.getUsername());
+
+        assertThatThrownBy(() -> jwtTokenProvider.getAuthentication(first)).isInstanceOf(CustomException.class);
+        assertThatThrownBy(() -> jwtTokenProvider.getAuthentication(second)).isInstanceOf(CustomException.class);
+    }
+
+    @Test
+    public void expiredRevocationsArePruned() {
+        Claims claims = Jwts.claims().setSubject("pruned").setId(UUID.randomUUID().toString());
+        claims.setExpiration(new Date(System.currentTimeMillis() + 60_000));
+        JwtToken token = new JwtToken(claims);
+        tokenRevocationService.revoke(token);
+        assertThat(tokenRevocationService.isRevoked(token)).isTrue();
+
+        tokenRevocationService.prune(token.getExpiration().getTime() - 1);
+        assertThat(tokenRevocationService.isRevoked(token)).isTrue();
+
+        tokenRevocationService.prune(token.getExpiration().getTime());
+        assertThat(tokenRevocationService.isRevoked(token)).isFalse();
+    }
+
+    private MockHttpServletRequest requestWith(String token) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Authorization", "Bearer " + token);
+        return request;
+    }
+
+    private User saveUser() {
+        return userRepository.save(TestUsers.user("revoke").build());
+    }
+}
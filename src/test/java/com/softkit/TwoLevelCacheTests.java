@@ -0,0 +1,244 @@
+package com.softkit;
+
+import com.google.common.collect.Lists;
+import com.softkit.cluster.ClusterEventBus;
+import com.softkit.cluster.LocalClusterEventBus;
+import com.softkit.configuration.CacheConfig;
+import com.softkit.configuration.TwoLevelCacheManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Two nodes on one cluster bus. A concurrent map stands in for the shared Redis tier.
+ */
+public class TwoLevelCacheTests {
+
+    private final ClusterEventBus clusterEventBus = new LocalClusterEventBus();
+    private final ConcurrentMapCacheManager redis = new ConcurrentMapCacheManager();
+
+    @Test
+    public void entriesAreSharedThroughTheRemoteTier() {
+        Cache first = node(redis).getCache("searchUser");
+        Cache second = node(redis).getCache("searchUser");
+
+        first.put("alice", "profile");
+
+        assertThat(local(second).getIfPresent("alice")).isNull();
+        assertThat(second.get("alice").get()).isEqualTo("profile");
+        // the second read is served by the local tier
+        redis.getCache("searchUser").clear();
+        assertThat(second.get("alice").get()).isEqualTo("profile");
+    }
+
+    @Test
+    public void evictionReachesEveryNode() {
+        Cache first = node(redis).getCache("searchUser");
+        Cache second = node(redis).getCache("searchUser");
+        first.put("alice", "profile");
+        first.put("bob", "profile");
+        second.get("alice");
+        second.get("bob");
+
+        first.evict("alice");
+
+        assertThat(redis.getCache("searchUser").get("alice")).isNull();
+        assertThat(local(second).getIfPresent("alice")).isNull();
+        assertThat(local(second).getIfPresent("bob")).isNotNull();
+        assertThat(second.get("alice")).isNull();
+    }
+
+    @Test
+    public void sharedTierFailureStillEvictsEveryNode() {
+        ConcurrentMapCacheManager failingRedis = new ConcurrentMapCacheManager() {
+            @Override
+            protected Cache createConcurrentMapCache(String name) {
+                return new ConcurrentMapCache(name) {
+                    @Override
+                    public void evict(Object key) {
+                        throw new IllegalStateException("redis down");
+                    }
+
+                    @Override
+                    public void clear() {
+                        throw new IllegalStateException("redis down");
+                    }
+                };
+            }
+        };
+        Cache first = node(failingRedis).getCache("searchUser");
+        Cache second = node(failingRedis).getCache("searchUser");
+        first.put("alice", "profile");
+        first.put("bob", "profile");
+        second.get("alice");
+        second.get("bob");
+
+        first.evict("alice");
+
+        assertThat(local(first).getIfPresent("alice")).isNull();
+        assertThat(local(second).getIfPresent("alice")).isNull();
+        assertThat(local(second).getIfPresent("bob")).isNotNull();
+
+        first.clear();
+
+        assertThat(local(first).getIfPresent("bob")).isNull();
+        assertThat(local(second).getIfPresent("bob")).isNull();
+    }
+
+    @Test
+    public void localOnlyNodesStayConsistentOverTheBus() {
+        Cache first = node(null).getCache("searchUser");
+        Cache second = node(null).getCache("searchUser");
+        first.put("alice", "old");
+        second.put("alice", "old");
+        second.put("bob", "profile");
+
+        first.evict("alice");
+
+        assertThat(second.get("alice")).isNull();
+        assertThat(second.get("bob").get()).isEqualTo("profile");
+
+        first.clear();
+
+        assertThat(second.get("bob")).isNull();
+    }
+
+    @Test
+    public void loaderRunsOnlyOnMiss() {
+        Cache cache = node(redis).getCache("searchUser");
+
+        assertThat(cache.get("alice", () -> "loaded")).isEqualTo("loaded");
+        assertThat(cache.get("alice", () -> "loaded again")).isEqualTo("loaded");
+        assertThat(redis.getCache("searchUser").get("alice").get()).isEqualTo("loaded");
+    }
+
+    @Test
+    public void concurrentMissesRunTheLoaderOnce() throws Exception {
+        Cache cache = node(redis).getCache("searchUser");
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService callers = Executors.newFixedThreadPool(8);
+
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            results.add(callers.submit(() -> cache.get("alice", () -> {
+                loads.incrementAndGet();
+                loading.countDown();
+                release.await();
+                return "loaded";
+            })));
+        }
+        loading.await();
+        // let the other callers reach the running load before it completes
+        Thread.sleep(100);
+        release.countDown();
+
+        for (Future<String> result : results) {
+            assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("loaded");
+        }
+        assertThat(loads).hasValue(1);
+        callers.shutdown();
+    }
+
+    @Test
+    public void loaderFailureReachesEveryWaiter() throws Exception {
+        Cache cache = node(redis).getCache("searchUser");
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService callers = Executors.newFixedThreadPool(2);
+        Callable<String> failing = () -> {
+            release.await();
+            throw new IllegalStateException("no such user");
+        };
+
+        Future<String> first = callers.submit(() -> cache.get("alice", failing));
+        Future<String> second = callers.submit(() -> cache.get("alice", failing));
+        Thread.sleep(100);
+        release.countDown();
+
+        for (Future<String> result : Lists.newArrayList(first, second)) {
+            assertThatThrownBy(() -> result.get(5, TimeUnit.SECONDS))
+                    .hasCauseInstanceOf(Cache.ValueRetrievalException.class)
+                    .hasRootCauseInstanceOf(IllegalStateException.class);
+        }
+        assertThat(cache.get("alice")).isNull();
+        callers.shutdown();
+    }
+
+    @Test
+    public void loadOverlappingAnEvictionIsNotStored() {
+        Cache cache = node(redis).getCache("searchUser");
+
+        String value = cache.get("alice", () -> {
+            cache.evict("alice");
+            return "read before the update";
+        });
+
+        assertThat(value).isEqualTo("read before the update");
+        assertThat(cache.get("alice")).isNull();
+        assertThat(redis.getCache("searchUser").get("alice")).isNull();
+    }
+
+    @Test
+    public void oldEntriesAreRefreshedWhileServed() throws Exception {
+        Cache cache = new TwoLevelCacheManager(redis, clusterEventBus, 100, Duration.ofMinutes(1), Duration.ofMillis(10),
+                Collections.emptySet(), Runnable::run).getCache("searchUser");
+        cache.put("alice", "old");
+
+        assertThat(cache.get("alice", () -> "new")).isEqualTo("old");
+        Thread.sleep(20);
+        assertThat(cache.get("alice", () -> "new")).isEqualTo("old");
+
+        assertThat(cache.get("alice").get()).isEqualTo("new");
+        assertThat(redis.getCache("searchUser").get("alice").get()).isEqualTo("new");
+    }
+
+    @Test
+    public void localOnlyCachesStayOutOfTheRemoteTier() {
+        Cache cache = new TwoLevelCacheManager(redis, clusterEventBus, 100, Duration.ofMinutes(1), Duration.ZERO,
+                Collections.singleton("userDetails")).getCache("userDetails");
+
+        cache.put("alice", "details");
+
+        assertThat(cache.get("alice").get()).isEqualTo("details");
+        assertThat(redis.getCache("userDetails").get("alice")).isNull();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void sharedTierNeedsTheSharedBus() {
+        assertThatThrownBy(() -> new CacheConfig().cacheManager(mock(ObjectProvider.class), clusterEventBus, "redis", "local",
+                100, Duration.ofMinutes(1), Duration.ZERO, new String[0], Duration.ofMinutes(10)))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("app.cluster.bus=redis");
+    }
+
+    private TwoLevelCacheManager node(ConcurrentMapCacheManager remote) {
+        return new TwoLevelCacheManager(remote, clusterEventBus, 100, Duration.ofMinutes(1), Duration.ZERO,
+                Collections.emptySet());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static com.github.benmanes.caffeine.cache.Cache<Object, Object> local(Cache cache) {
+        return (com.github.benmanes.caffeine.cache.Cache<Object, Object>) cache.getNativeCache();
+    }
+
+}
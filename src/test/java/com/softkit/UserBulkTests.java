@@ -0,0 +1,165 @@
+package com.softkit;
+
+import com.google.common.collect.Lists;
+import com.softkit.configuration.SqlStatementCounter;
+import com.softkit.dto.BulkResultDTO;
+import com.softkit.exception.CustomException;
+import com.softkit.model.Role;
+import com.softkit.model.User;
+import com.softkit.repository.UserRepository;
+import com.softkit.security.JwtTokenProvider;
+import com.softkit.service.UserBulkService;
+import com.softkit.service.UserService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(classes = {StarterApplication.class})
+@TestPropertySource(properties = "spring.cache.type=simple")
+public class UserBulkTests {
+
+    @Autowired
+    private UserBulkService userBulkService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JwtTokenProvider jwtTokenProvider;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Test
+    public void deleteRunsSetBasedStatements() {
+        List<String> usernames = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            usernames.add(saveUser(Role.ROLE_CLIENT).getUsername());
+        }
+        usernames.add("missing" + UUID.randomUUID());
+        SqlStatementCounter.reset();
+
+        List<BulkResultDTO> results = userBulkService.delete(usernames);
+
+//        one select of the existing usernames and one delete, whatever the number of users
+        assertThat(SqlStatementCounter.count()).isEqualTo(2);
+        assertThat(outcomes(results)).containsOnlyKeys(usernames);
+        assertThat(results.get(20).getOutcome()).isEqualTo(BulkResultDTO.Outcome.NOT_FOUND);
+        assertThat(results.subList(0, 20)).allMatch(result -> result.getOutcome() == BulkResultDTO.Outcome.DONE);
+        assertThat(userRepository.findUsernamesIn(usernames)).isEmpty();
+    }
+
+    @Test
+    public void onlyAffectedUsersAreEvictedFromSearchCache() {
+        User changed = saveUser(Role.ROLE_CLIENT);
+        User untouched = saveUser(Role.ROLE_CLIENT);
+        userService.search(changed.getUsername());
+        userService.search(untouched.getUsername());
+        Cache searchUser = cacheManager.getCache("searchUser");
+
+        userBulkService.setRoles(Lists.newArrayList(changed.getUsername()), Lists.newArrayList(Role.ROLE_ADMIN));
+
+        assertThat(searchUser.get(changed.getUsername())).isNull();
+        assertThat(searchUser.get(untouched.getUsername())).isNotNull();
+        assertThat(userService.search(changed.getUsername()).getRoles()).containsExactly(Role.ROLE_ADMIN);
+    }
+
+    @Test
+    public void roleChangeAndDisableRevokeTokens() {
+        User promoted = saveUser(Role.ROLE_CLIENT);
+        User disabled = saveUser(Role.ROLE_CLIENT);
+        String promotedToken = jwtTokenProvider.createToken(promoted);
+        String disabledToken = jwtTokenProvider.createToken(disabled);
+        jwtTokenProvider.getAuthentication(promotedToken);
+        jwtTokenProvider.getAuthentication(disabledToken);
+
+        userBulkService.setRoles(Lists.newArrayList(promoted.getUsername()), Lists.newArrayList(Role.ROLE_ADMIN, Role.ROLE_CLIENT));
+        userBulkService.setEnabled(Lists.newArrayList(disabled.getUsername()), false);
+
+        assertThatThrownBy(() -> jwtTokenProvider.getAuthentication(promotedToken)).isInstanceOf(CustomException.class);
+        assertThatThrownBy(() -> jwtTokenProvider.getAuthentication(disabledToken)).isInstanceOf(CustomException.class);
+        assertThat(userRepository.findByUsername(disabled.getUsername()).isEnabled()).isFalse();
+        assertThat(userRepository.findByUsername(promoted.getUsername()).getRoles())
+                .containsExactlyInAnyOrder(Role.ROLE_ADMIN, Role.ROLE_CLIENT);
+    }
+
+    @Test
+    public void renameReportsEveryItem() {
+        User renamed = saveUser(Role.ROLE_CLIENT);
+        User caseOnly = saveUser(Role.ROLE_CLIENT);
+        User blocked = saveUser(Role.ROLE_CLIENT);
+        User taken = saveUser(Role.ROLE_CLIENT);
+        String target = "renamed" + UUID.randomUUID().toString().substring(0, 8);
+        Map<String, String> renames = new LinkedHashMap<>();
+        renames.put(renamed.getUsername(), target);
+        renames.put(caseOnly.getUsername(), caseOnly.getUsername().toUpperCase());
+        renames.put(blocked.getUsername(), taken.getUsername().toUpperCase());
+        renames.put("missing" + UUID.randomUUID(), "anything" + UUID.randomUUID());
+        renames.put(taken.getUsername(), " ");
+
+        Map<String, BulkResultDTO.Outcome> outcomes = outcomes(userBulkService.rename(renames));
+
+        assertThat(outcomes.values()).containsExactly(BulkResultDTO.Outcome.DONE, BulkResultDTO.Outcome.DONE,
+                BulkResultDTO.Outcome.CONFLICT, BulkResultDTO.Outcome.NOT_FOUND, BulkResultDTO.Outcome.INVALID);
+        assertThat(userRepository.existsByUsername(renamed.getUsername())).isFalse();
+        assertThat(userRepository.existsByUsernameLower(target.toLowerCase())).isTrue();
+        assertThat(userRepository.existsByUsername(caseOnly.getUsername().toUpperCase())).isTrue();
+        assertThat(userRepository.existsByUsername(blocked.getUsername())).isTrue();
+    }
+
+    @Test
+    public void targetOutsideUsernameConstraintsIsInvalidAndTheRestIsApplied() {
+        User tooShort = saveUser(Role.ROLE_CLIENT);
+        User tooLong = saveUser(Role.ROLE_CLIENT);
+        User renamed = saveUser(Role.ROLE_CLIENT);
+        String target = "renamed" + UUID.randomUUID().toString().substring(0, 8);
+        Map<String, String> renames = new LinkedHashMap<>();
+        renames.put(tooShort.getUsername(), "abc");
+        renames.put(tooLong.getUsername(), "x".repeat(256));
+        renames.put(renamed.getUsername(), target);
+
+        Map<String, BulkResultDTO.Outcome> outcomes = outcomes(userBulkService.rename(renames));
+
+        assertThat(outcomes.values()).containsExactly(BulkResultDTO.Outcome.INVALID, BulkResultDTO.Outcome.INVALID,
+                BulkResultDTO.Outcome.DONE);
+        assertThat(userRepository.existsByUsername(tooShort.getUsername())).isTrue();
+        assertThat(userRepository.existsByUsername(tooLong.getUsername())).isTrue();
+        assertThat(userRepository.existsByUsernameLower(target.toLowerCase())).isTrue();
+    }
+
+    @Test
+    public void requestSizeIsBounded() {
+        List<String> usernames = new ArrayList<>();
+        for (int i = 0; i <= 10000; i++) {
+            usernames.add("user" + i);
+        }
+
+        assertThatThrownBy(() -> userBulkService.delete(usernames)).isInstanceOf(CustomException.class);
+    }
+
+    private static Map<String, BulkResultDTO.Outcome> outcomes(List<BulkResultDTO> results) {
+        return results.stream().collect(Collectors.toMap(BulkResultDTO::getUsername, BulkResultDTO::getOutcome,
+                (a, b) -> a, LinkedHashMap::new));
+    }
+
+    private User saveUser(Role role) {
+        return userRepository.save(TestUsers.user("bulk").roles(Lists.newArrayList(role)).build());
+    }
+
+}
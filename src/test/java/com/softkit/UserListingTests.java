@@ -0,0 +1,113 @@
+package com.softkit;
+
+import com.google.common.collect.Lists;
+import com.softkit.dto.UserPageDTO;
+import com.softkit.dto.UserResponseDTO;
+import com.softkit.model.Role;
+import com.softkit.model.User;
+import com.softkit.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static com.softkit.TestUsers.PASSWORD;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@TestPropertySource(properties = "spring.cache.type=simple")
+public class UserListingTests extends AbstractControllerTest {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Test
+    public void pagesFollowTheCursorWithoutCounting() {
+        User admin = saveUser(Lists.newArrayList(Role.ROLE_ADMIN), true);
+        String token = signin(admin);
+        List<Integer> saved = Lists.newArrayList(admin.getId());
+        for (int i = 0; i < 5; i++) {
+            saved.add(saveUser(Lists.newArrayList(Role.ROLE_CLIENT), true).getId());
+        }
+        // the first request of a user also loads its token stamp
+        list(uri(), token);
+
+        List<Integer> ids = new ArrayList<>();
+        Integer after = admin.getId() - 1;
+        do {
+            ResponseEntity<UserPageDTO> response = list(uri().queryParam("size", 2).queryParam("after", after), token);
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+            // the page and the look-ahead row come from one select, no count query
+            assertThat(statements(response)).isLessThanOrEqualTo(2);
+            UserPageDTO page = response.getBody();
+            assertThat(page.getUsers()).hasSizeLessThanOrEqualTo(2);
+            page.getUsers().forEach(user -> ids.add(user.getId()));
+            after = page.getNextCursor();
+        } while (after != null);
+
+        assertThat(ids).containsExactlyElementsOf(saved);
+    }
+
+    @Test
+    public void filtersAreApplied() {
+        String token = signin(saveUser(Lists.newArrayList(Role.ROLE_ADMIN), true));
+        User both = saveUser(Lists.newArrayList(Role.ROLE_ADMIN, Role.ROLE_CLIENT), true);
+        User disabledClient = saveUser(Lists.newArrayList(Role.ROLE_CLIENT), false);
+        User admin = saveUser(Lists.newArrayList(Role.ROLE_ADMIN), true);
+        UriComponentsBuilder from = uri().queryParam("size", 500).queryParam("after", both.getId() - 1);
+
+        List<String> clients = usernames(list(from.cloneBuilder().queryParam("role", "ROLE_CLIENT"), token));
+        List<String> disabled = usernames(list(from.cloneBuilder().queryParam("enabled", false), token));
+        List<String> before = usernames(list(from.cloneBuilder().queryParam("registeredTo", "2000-01-01"), token));
+
+        assertThat(clients).contains(both.getUsername(), disabledClient.getUsername()).doesNotContain(admin.getUsername());
+        assertThat(disabled).containsExactly(disabledClient.getUsername());
+        assertThat(before).isEmpty();
+    }
+
+    @Test
+    public void pageSizeIsBounded() {
+        String token = signin(saveUser(Lists.newArrayList(Role.ROLE_ADMIN), true));
+        String client = signin(saveUser(Lists.newArrayList(Role.ROLE_CLIENT), true));
+
+        assertThat(list(uri().queryParam("size", 501), token).getStatusCode()).isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY);
+        assertThat(list(uri().queryParam("size", 0), token).getStatusCode()).isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY);
+        assertThat(list(uri(), client).getStatusCode()).isEqualTo(HttpStatus.FORBIDDEN);
+    }
+
+    private static List<String> usernames(ResponseEntity<UserPageDTO> response) {
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        return response.getBody().getUsers().stream().map(UserResponseDTO::getUsername).collect(Collectors.toList());
+    }
+
+    private UriComponentsBuilder uri() {
+        return UriComponentsBuilder.fromHttpUrl(getBaseUrl() + "/users");
+    }
+
+    private ResponseEntity<UserPageDTO> list(UriComponentsBuilder uri, String token) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(token);
+        return restTemplate.exchange(uri.build().encode().toUri(), HttpMethod.GET, new HttpEntity<>(headers), UserPageDTO.class);
+    }
+
+    private User saveUser(List<Role> roles, boolean enabled) {
+        return userRepository.save(TestUsers.user("listing")
+                .password(passwordEncoder.encode(PASSWORD))
+                .roles(roles)
+                .enabled(enabled)
+                .build());
+    }
+
+}
@@ -4,6 +4,7 @@ import com.google.common.collect.Lists;
 import com.softkit.exception.CustomException;
 import com.softkit.model.Role;
 import com.softkit.model.User;
+import com.softkit.repository.UserRepository;
 import com.softkit.service.UserService;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -11,8 +12,10 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.HttpStatus;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
 
 import java.sql.Date;
+import java.util.UUID;
 
 
 /**
@@ -27,6 +30,9 @@ public class UserServiceTests {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private UserRepository userRepository;
+
     @Test
     public void successUserSignupTest() {
         userService.signup(new User(null,
@@ -34,6 +40,8 @@ public class UserServiceTests {
                 "HeisenbuG1!",
                 "maxim.shepelyakovski@gmail.com",
                 null,
+                null,
+                null,
                 "maxim",
                 "maxim",
                 Date.valueOf("2003-01-11"),
@@ -41,7 +49,8 @@ public class UserServiceTests {
                 "photo",
                 Lists.newArrayList(Role.ROLE_CLIENT),
                 "asdasdas",
-                false));
+                false,
+                0));
 
         try {
             userService.signup(new User(null,
@@ -49,6 +58,8 @@ public class UserServiceTests {
                     "HeisenbuG1!",
                     "maxim.shepelyakovski@gmail.com",
                     null,
+                    null,
+                    null,
                     "maxim",
                     "maxim",
                     Date.valueOf("2003-01-11"),
@@ -56,7 +67,8 @@ public class UserServiceTests {
                     "photo",
                     Lists.newArrayList(Role.ROLE_CLIENT),
                     "asdasdas",
-                    false));
+                    false,
+                    0));
         } catch (CustomException e) {
             assertThat(e.getMessage()).isEqualTo("Username is already in use");
             assertThat(e.getHttpStatus()).isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY);
@@ -64,4 +76,44 @@ public class UserServiceTests {
 
     }
 
+    @Test
+    public void usernameAndEmailAreUniqueInAnyCase() {
+        String username = "CaseUser" + UUID.randomUUID().toString().substring(0, 8);
+        User user = User.builder()
+                .username(username)
+                .password("HeisenbuG1!")
+                .email(username + "@SoftKit.com")
+                .firstName("soft")
+                .lastName("kit")
+                .birthday(Date.valueOf("2003-01-11"))
+                .roles(Lists.newArrayList(Role.ROLE_CLIENT))
+                .build();
+        userService.signup(user);
+
+        User stored = userRepository.findByUsername(username);
+        assertThat(stored.getUsernameLower()).isEqualTo(username.toLowerCase());
+        assertThat(stored.getEmailLower()).isEqualTo((username + "@softkit.com").toLowerCase());
+
+        assertThatThrownBy(() -> userService.signup(User.builder()
+                .username(username.toUpperCase())
+                .password("HeisenbuG1!")
+                .email("other" + username + "@softkit.com")
+                .firstName("soft")
+                .lastName("kit")
+                .birthday(Date.valueOf("2003-01-11"))
+                .roles(Lists.newArrayList(Role.ROLE_CLIENT))
+                .build()))
+                .hasMessage("Username is already in use");
+        assertThatThrownBy(() -> userService.signup(User.builder()
+                .username("other" + username)
+                .password("HeisenbuG1!")
+                .email((username + "@softkit.com").toUpperCase())
+                .firstName("soft")
+                .lastName("kit")
+                .birthday(Date.valueOf("2003-01-11"))
+                .roles(Lists.newArrayList(Role.ROLE_CLIENT))
+                .build()))
+                .hasMessage("Email is already in use");
+    }
+
 }
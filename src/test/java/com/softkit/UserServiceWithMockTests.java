@@ -63,6 +63,8 @@ public class UserServiceWithMockTests {
                     "HeisenbuG1!",
                     "maxim.shepelyakovski@gmail.com",
                     null,
+                    null,
+                    null,
                     "maxim",
                     "maxim",
                     Date.valueOf("2003-01-11"),
@@ -70,7 +72,8 @@ public class UserServiceWithMockTests {
                     "photo",
                     Lists.newArrayList(Role.ROLE_CLIENT),
                     "asdasdas",
-                    false));        } catch (CustomException e) {
+                    false,
+                    0));        } catch (CustomException e) {
             assertThat(e.getMessage()).isEqualTo("Username is already in use");
             assertThat(e.getHttpStatus()).isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY);
         }
@@ -88,6 +91,8 @@ public class UserServiceWithMockTests {
                 "HeisenbuG1!",
                 "maxim.shepelyakovski@gmail.com",
                 null,
+                null,
+                null,
                 "maxim",
                 "maxim",
                 Date.valueOf("2003-01-11"),
@@ -95,7 +100,8 @@ public class UserServiceWithMockTests {
                 "photo",
                 Lists.newArrayList(Role.ROLE_CLIENT),
                 "asdasdas",
-                false);
+                false,
+                0);
 
         userService.signup(user);
 
@@ -0,0 +1,70 @@
+package com.softkit;
+
+import com.softkit.configuration.SqlStatementCounter;
+import com.softkit.model.User;
+import com.softkit.repository.UserRepository;
+import com.softkit.security.BCryptCostCalibrator;
+import com.softkit.service.UserService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import static com.softkit.TestUsers.PASSWORD;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(classes = {StarterApplication.class})
+public class UserSigninTests {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Test
+    public void signinByUsernameRunsOneUserQuery() {
+        User user = saveUser(passwordEncoder.encode(PASSWORD));
+        SqlStatementCounter.reset();
+
+        assertThat(userService.signin(user.getUsername(), PASSWORD)).isNotBlank();
+
+//        roles are a column of the user row, so this is the only statement
+        assertThat(SqlStatementCounter.count()).isEqualTo(1);
+    }
+
+    @Test
+    public void signinByEmailRunsOneUserQuery() {
+        User user = saveUser(passwordEncoder.encode(PASSWORD));
+        SqlStatementCounter.reset();
+
+        assertThat(userService.signin(user.getEmail().toUpperCase(), PASSWORD)).isNotBlank();
+
+        assertThat(SqlStatementCounter.count()).isEqualTo(1);
+    }
+
+    @Test
+    public void weakHashIsUpgradedOnSignin() {
+        User user = saveUser(new BCryptPasswordEncoder(4).encode(PASSWORD));
+
+        assertThat(userService.signin(user.getUsername(), PASSWORD)).isNotBlank();
+
+        String rehashed = userRepository.findByUsername(user.getUsername()).getPassword();
+        assertThat(rehashed).startsWith("$2a$10$");
+        assertThat(userService.signin(user.getUsername(), PASSWORD)).isNotBlank();
+        assertThat(userRepository.findByUsername(user.getUsername()).getPassword()).isEqualTo(rehashed);
+    }
+
+    @Test
+    public void calibrationStaysWithinBounds() {
+        assertThat(BCryptCostCalibrator.calibrate(1)).isEqualTo(BCryptCostCalibrator.MIN_STRENGTH);
+    }
+
+    private User saveUser(String encodedPassword) {
+        return userRepository.save(TestUsers.user("signin").password(encodedPassword).build());
+    }
+}
@@ -0,0 +1,74 @@
+package com.softkit;
+
+import com.softkit.security.JwtToken;
+import com.softkit.security.VerifiedTokenCache;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class VerifiedTokenCacheTests {
+
+    @Test
+    public void repeatedTokenIsServedFromCache() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(100);
+        JwtToken jwtToken = token("softkit", 60_000);
+
+        assertThat(cache.get("token")).isNull();
+        cache.put("token", jwtToken);
+
+        assertThat(cache.get("token")).isSameAs(jwtToken);
+        assertThat(cache.hitCount()).isEqualTo(1);
+        assertThat(cache.missCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void expiredTokenIsDropped() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(100);
+        cache.put("token", token("softkit", -1_000));
+
+        assertThat(cache.get("token")).isNull();
+        assertThat(cache.size()).isZero();
+        assertThat(cache.evictionCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void sizeIsCapped() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(160);
+        for (int i = 0; i < 10_000; i++) {
+            cache.put("token" + i, token("user" + i, 60_000));
+        }
+
+        assertThat(cache.size()).isLessThanOrEqualTo(160);
+        assertThat(cache.evictionCount()).isEqualTo(10_000 - cache.size());
+    }
+
+    @Test
+    public void countersAreExposedAsMeters() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(100);
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        cache.bindTo(meterRegistry);
+
+        cache.get("token");
+        cache.put("token", token("softkit", 60_000));
+        cache.get("token");
+        cache.get("token");
+        cache.put("expired", token("softkit", -1_000));
+        cache.get("expired");
+
+        assertThat(meterRegistry.get("jwt.verified.cache").tag("result", "hit").functionCounter().count()).isEqualTo(2);
+        assertThat(meterRegistry.get("jwt.verified.cache").tag("result", "miss").functionCounter().count()).isEqualTo(2);
+        assertThat(meterRegistry.get("jwt.verified.cache.evictions").functionCounter().count()).isEqualTo(1);
+    }
+
+    private JwtToken token(String username, long validity) {
+        Claims claims = Jwts.claims().setSubject(username);
+        claims.setExpiration(new Date(System.currentTimeMillis() + validity));
+        return new JwtToken(claims);
+    }
+}